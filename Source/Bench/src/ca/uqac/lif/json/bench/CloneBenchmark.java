@@ -0,0 +1,120 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonNumber;
+import ca.uqac.lif.json.JsonParser;
+import ca.uqac.lif.json.JsonPath;
+
+/**
+ * Measures the cloning of elements
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CloneBenchmark
+{
+	/**
+	 * The name of the corpus to clone
+	 */
+	@Param({"small", "medium", "large", "deep", "wide"})
+	public String m_corpus;
+
+	/**
+	 * The element to clone
+	 */
+	protected JsonElement m_element;
+
+	/**
+	 * A frozen copy of the element to clone
+	 */
+	protected JsonElement m_frozen;
+
+	/**
+	 * The path to modify in the clones of the frozen element
+	 */
+	protected String m_path;
+
+	/**
+	 * Parses the document
+	 * @throws Exception If the document cannot be parsed
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		JsonParser parser = new JsonParser();
+		m_element = parser.parse(Corpus.getDocument(m_corpus));
+		m_frozen = parser.parse(Corpus.getDocument(m_corpus)).freeze();
+		m_path = Corpus.getPath(m_corpus);
+	}
+
+	@Benchmark
+	public JsonElement cloneElement()
+	{
+		return m_element.clone();
+	}
+
+	@Benchmark
+	public JsonElement cloneFrozen()
+	{
+		return m_frozen.clone();
+	}
+
+	/**
+	 * Clones a frozen template and changes one value in the copy, which is
+	 * the typical use of a copy-on-write clone
+	 * @return The copy
+	 */
+	@Benchmark
+	public JsonElement cloneFrozenAndModify()
+	{
+		JsonElement copy = m_frozen.clone();
+		JsonElement parent = copy;
+		String path = m_path;
+		int dot = path.lastIndexOf('.');
+		if (dot >= 0)
+		{
+			parent = JsonPath.get(copy, path.substring(0, dot));
+			path = path.substring(dot + 1);
+		}
+		if (parent instanceof JsonMap)
+		{
+			((JsonMap) parent).put(path, new JsonNumber(0));
+		}
+		return copy;
+	}
+}
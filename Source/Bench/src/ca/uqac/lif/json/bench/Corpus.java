@@ -0,0 +1,276 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+
+/**
+ * Generates the documents used by the benchmarks. Documents are
+ * produced from a fixed seed, so that every run measures the same
+ * input. Each corpus also comes with a path that exists in its document.
+ */
+public class Corpus
+{
+	/**
+	 * The names of the available corpora
+	 */
+	public static final String[] NAMES = {"small", "medium", "large", "deep", "wide", "strings"};
+
+	/**
+	 * The seed used to generate documents
+	 */
+	protected static final long SEED = 42;
+
+	/**
+	 * Utility class; no instance
+	 */
+	private Corpus()
+	{
+		super();
+	}
+
+	/**
+	 * Gets the document of a corpus
+	 * @param name The name of the corpus
+	 * @return The document, in compact form
+	 */
+	public static String getDocument(String name)
+	{
+		if (name.equals("small"))
+		{
+			return records(3).toString("", true);
+		}
+		if (name.equals("medium"))
+		{
+			return records(500).toString("", true);
+		}
+		if (name.equals("large"))
+		{
+			return records(20000).toString("", true);
+		}
+		if (name.equals("deep"))
+		{
+			return deep(200).toString("", true);
+		}
+		if (name.equals("wide"))
+		{
+			return wide(5000).toString("", true);
+		}
+		if (name.equals("strings"))
+		{
+			return strings(2000).toString("", true);
+		}
+		throw new IllegalArgumentException("Unknown corpus " + name);
+	}
+
+	/**
+	 * Gets a path that exists in the document of a corpus
+	 * @param name The name of the corpus
+	 * @return The path
+	 */
+	public static String getPath(String name)
+	{
+		if (name.equals("small"))
+		{
+			return "records[2].location.lat";
+		}
+		if (name.equals("medium"))
+		{
+			return "records[250].location.lat";
+		}
+		if (name.equals("large"))
+		{
+			return "records[10000].tags[1]";
+		}
+		if (name.equals("deep"))
+		{
+			StringBuilder path = new StringBuilder("child");
+			for (int i = 1; i < 150; i++)
+			{
+				path.append(".child");
+			}
+			return path.append(".value").toString();
+		}
+		if (name.equals("wide"))
+		{
+			return "k4321";
+		}
+		if (name.equals("strings"))
+		{
+			return "messages[1000].body";
+		}
+		throw new IllegalArgumentException("Unknown corpus " + name);
+	}
+
+	/**
+	 * Writes a temporary file with one record per line. The file is
+	 * deleted when the virtual machine exits.
+	 * @param count The number of lines
+	 * @return The file
+	 * @throws IOException If the file cannot be written
+	 */
+	public static File writeLines(int count) throws IOException
+	{
+		File f = File.createTempFile("corpus", ".jsonl");
+		f.deleteOnExit();
+		Charset utf8 = Charset.forName("UTF-8");
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(f));
+		try
+		{
+			JsonList records = (JsonList) records(count).get("records");
+			for (JsonElement rec : records)
+			{
+				rec.writeTo(out, utf8);
+				out.write('\n');
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+		return f;
+	}
+
+	/**
+	 * Creates a map holding a list of records of mixed types
+	 * @param count The number of records
+	 * @return The map
+	 */
+	protected static JsonMap records(int count)
+	{
+		Random r = new Random(SEED);
+		JsonList list = new JsonList(count);
+		for (int i = 0; i < count; i++)
+		{
+			JsonMap rec = new JsonMap();
+			rec.put("id", i);
+			rec.put("name", "user-" + Long.toHexString(r.nextLong()));
+			rec.put("active", r.nextBoolean());
+			rec.put("score", r.nextDouble() * 100);
+			rec.put("visits", r.nextInt(100000));
+			JsonList tags = new JsonList(3);
+			tags.add("tag" + r.nextInt(10));
+			tags.add("tag" + r.nextInt(10));
+			tags.add("a \"quoted\" tag\n");
+			rec.put("tags", tags);
+			JsonMap location = new JsonMap();
+			location.put("lat", r.nextDouble() * 180 - 90);
+			location.put("lon", r.nextDouble() * 360 - 180);
+			rec.put("location", location);
+			list.add(rec);
+		}
+		JsonMap root = new JsonMap();
+		root.put("count", count);
+		root.put("records", list);
+		return root;
+	}
+
+	/**
+	 * Creates a chain of nested maps
+	 * @param depth The number of nested maps
+	 * @return The outermost map
+	 */
+	protected static JsonMap deep(int depth)
+	{
+		JsonMap root = new JsonMap();
+		JsonMap current = root;
+		for (int i = 0; i < depth; i++)
+		{
+			current.put("value", i);
+			JsonList siblings = new JsonList(2);
+			siblings.add(i);
+			siblings.add("level " + i);
+			current.put("siblings", siblings);
+			JsonMap child = new JsonMap();
+			current.put("child", child);
+			current = child;
+		}
+		return root;
+	}
+
+	/**
+	 * Creates a single map with many entries
+	 * @param width The number of entries
+	 * @return The map
+	 */
+	protected static JsonMap wide(int width)
+	{
+		Random r = new Random(SEED);
+		JsonMap root = new JsonMap();
+		for (int i = 0; i < width; i++)
+		{
+			if (i % 2 == 0)
+			{
+				root.put("k" + i, r.nextInt());
+			}
+			else
+			{
+				root.put("k" + i, "v" + r.nextInt(1000));
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Creates a list of messages made mostly of long strings. One message
+	 * in ten has a body with characters that must be escaped.
+	 * @param count The number of messages
+	 * @return The map holding the list
+	 */
+	protected static JsonMap strings(int count)
+	{
+		String[] words = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do", "eiusmod", "tempor"};
+		Random r = new Random(SEED);
+		JsonList list = new JsonList(count);
+		for (int i = 0; i < count; i++)
+		{
+			StringBuilder body = new StringBuilder();
+			int length = 20 + r.nextInt(60);
+			for (int j = 0; j < length; j++)
+			{
+				if (j > 0)
+				{
+					body.append(' ');
+				}
+				body.append(words[r.nextInt(words.length)]);
+			}
+			if (i % 10 == 0)
+			{
+				body.append("\n\t\"caf\u00e9\" \\ end");
+			}
+			JsonMap msg = new JsonMap();
+			msg.put("from", "user-" + Long.toHexString(r.nextLong()) + "@example.com");
+			msg.put("subject", words[r.nextInt(words.length)] + " " + words[r.nextInt(words.length)]);
+			msg.put("body", body.toString());
+			list.add(msg);
+		}
+		JsonMap root = new JsonMap();
+		root.put("messages", list);
+		return root;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonParser;
+import ca.uqac.lif.json.JsonPath;
+import ca.uqac.lif.json.JsonString;
+
+/**
+ * Measures the computation of hash codes and the comparison of
+ * documents, as done when documents are used as keys of a hash set
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EqualityBenchmark
+{
+	/**
+	 * The name of the corpus to compare
+	 */
+	@Param({"small", "medium", "large", "deep", "wide"})
+	public String m_corpus;
+
+	/**
+	 * A mutable document
+	 */
+	protected JsonElement m_mutable;
+
+	/**
+	 * A mutable document equal to {@link #m_mutable}
+	 */
+	protected JsonElement m_mutableCopy;
+
+	/**
+	 * A frozen document
+	 */
+	protected JsonElement m_frozen;
+
+	/**
+	 * A frozen document that differs from {@link #m_frozen} in one value
+	 */
+	protected JsonElement m_frozenOther;
+
+	/**
+	 * Parses the documents
+	 * @throws Exception If a document cannot be parsed
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		JsonParser parser = new JsonParser();
+		String doc = Corpus.getDocument(m_corpus);
+		m_mutable = parser.parse(doc);
+		m_mutableCopy = parser.parse(doc);
+		m_frozen = parser.parse(doc).freeze();
+		m_frozenOther = JsonPath.with(parser.parse(doc), Corpus.getPath(m_corpus), new JsonString("x"));
+		// Hash codes of frozen documents are computed once
+		m_frozen.hashCode();
+		m_frozenOther.hashCode();
+	}
+
+	@Benchmark
+	public int hashMutable()
+	{
+		return m_mutable.hashCode();
+	}
+
+	@Benchmark
+	public int hashFrozen()
+	{
+		return m_frozen.hashCode();
+	}
+
+	@Benchmark
+	public boolean equalsMutable()
+	{
+		return m_mutable.equals(m_mutableCopy);
+	}
+
+	@Benchmark
+	public boolean equalsFrozenDifferent()
+	{
+		return m_frozen.equals(m_frozenOther);
+	}
+}
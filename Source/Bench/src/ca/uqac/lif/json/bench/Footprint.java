@@ -0,0 +1,108 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonList;
+import ca.uqac.lif.json.JsonMap;
+import ca.uqac.lif.json.JsonParser;
+
+/**
+ * Measures the memory taken by the document of each corpus once parsed,
+ * using <a href="https://openjdk.java.net/projects/code-tools/jol/">JOL</a>.
+ * Each document is measured twice: as returned by the parser, and with
+ * every map copied into a {@link HashMap}, which is what {@link JsonMap}
+ * used before it stored its entries in a compact map.
+ */
+public class Footprint
+{
+	/**
+	 * Utility class; no instance
+	 */
+	private Footprint()
+	{
+		super();
+	}
+
+	/**
+	 * Prints the footprint of each corpus
+	 * @param args Not used
+	 * @throws Exception If a document cannot be parsed
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		JsonParser parser = new JsonParser();
+		System.out.printf("%-8s %14s %14s %8s%n", "corpus", "compact (B)", "hash (B)", "ratio");
+		for (String name : Corpus.NAMES)
+		{
+			JsonElement e = parser.parse(Corpus.getDocument(name));
+			long compact = GraphLayout.parseInstance(e).totalSize();
+			long hash = GraphLayout.parseInstance(toHash(e)).totalSize();
+			System.out.printf("%-8s %14d %14d %8.2f%n", name, compact, hash, (double) compact / hash);
+		}
+	}
+
+	/**
+	 * Copies an element, storing the entries of every map in a hash map
+	 * @param e The element
+	 * @return The copy
+	 */
+	protected static JsonElement toHash(JsonElement e)
+	{
+		if (e instanceof JsonMap)
+		{
+			HashJsonMap map = new HashJsonMap();
+			for (Map.Entry<String,JsonElement> entry : ((JsonMap) e).entrySet())
+			{
+				map.put(entry.getKey(), toHash(entry.getValue()));
+			}
+			return map;
+		}
+		if (e instanceof JsonList)
+		{
+			JsonList in = (JsonList) e;
+			JsonList list = new JsonList(in.size());
+			for (JsonElement child : in)
+			{
+				list.add(toHash(child));
+			}
+			return list;
+		}
+		return e;
+	}
+
+	/**
+	 * A JSON map whose entries are stored in a hash map
+	 */
+	protected static class HashJsonMap extends JsonMap
+	{
+		/**
+		 * Creates a new empty map
+		 */
+		public HashJsonMap()
+		{
+			super();
+			m_map = new HashMap<String,JsonElement>();
+		}
+	}
+}
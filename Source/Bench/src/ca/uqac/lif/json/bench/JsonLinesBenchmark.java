@@ -0,0 +1,170 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonLinesReader;
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+import ca.uqac.lif.json.ParallelJsonLinesReader;
+import ca.uqac.lif.json.ParallelJsonLinesReader.LineHandler;
+
+/**
+ * Measures the reading of a file with one element per line, either
+ * sequentially or in parallel with a varying number of threads. The
+ * sequential reading does not depend on the number of threads, and is
+ * only measured once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonLinesBenchmark
+{
+	/**
+	 * The number of lines in the file
+	 */
+	protected static final int LINES = 200000;
+
+	/**
+	 * The number of threads parsing the file; 0 stands for sequential
+	 * reading with a {@link JsonLinesReader}
+	 */
+	@Param({"0", "1", "2", "4", "8", "16", "32"})
+	public int m_threads;
+
+	/**
+	 * Whether elements are delivered in the order of the file
+	 */
+	@Param({"true", "false"})
+	public boolean m_ordered;
+
+	/**
+	 * The file to read
+	 */
+	protected File m_file;
+
+	/**
+	 * The executor running the parsing tasks
+	 */
+	protected ExecutorService m_executor;
+
+	/**
+	 * Writes the file and starts the threads
+	 * @throws IOException If the file cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException
+	{
+		m_file = Corpus.writeLines(LINES);
+		if (m_threads > 0)
+		{
+			m_executor = Executors.newFixedThreadPool(m_threads);
+		}
+	}
+
+	/**
+	 * Stops the threads and deletes the file
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		if (m_executor != null)
+		{
+			m_executor.shutdown();
+		}
+		m_file.delete();
+	}
+
+	@Benchmark
+	public int read() throws IOException, InterruptedException, JsonParseException
+	{
+		if (m_threads == 0)
+		{
+			if (!m_ordered)
+			{
+				// Sequential reading is always ordered
+				return 0;
+			}
+			JsonLinesReader r = new JsonLinesReader(m_file);
+			int count = 0;
+			try
+			{
+				while (r.readNext() != null)
+				{
+					count++;
+				}
+			}
+			finally
+			{
+				r.close();
+			}
+			return count;
+		}
+		ParallelJsonLinesReader r = new ParallelJsonLinesReader(m_file, m_executor);
+		r.setOrdered(m_ordered);
+		r.setMaxPendingChunks(2 * m_threads);
+		CountingHandler h = new CountingHandler();
+		r.read(h);
+		return h.m_count;
+	}
+
+	/**
+	 * A handler that counts the elements it receives
+	 */
+	protected static class CountingHandler implements LineHandler
+	{
+		/**
+		 * The number of elements received
+		 */
+		protected int m_count;
+
+		@Override
+		public void element(JsonElement e)
+		{
+			m_count++;
+		}
+
+		@Override
+		public void error(JsonParseException e)
+		{
+			// Not expected
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.json.simple.parser.JSONFeedParser;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonElementBuilder;
+import ca.uqac.lif.json.JsonParser;
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * Measures the parsing of documents from a string and from UTF-8 bytes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark
+{
+	/**
+	 * The name of the corpus to parse
+	 */
+	@Param({"small", "medium", "large", "deep", "wide", "strings"})
+	public String m_corpus;
+
+	/**
+	 * The document, as a string
+	 */
+	protected String m_document;
+
+	/**
+	 * The document, as UTF-8 bytes
+	 */
+	protected ByteBuffer m_bytes;
+
+	/**
+	 * The parser
+	 */
+	protected JsonParser m_parser;
+
+	/**
+	 * Generates the document
+	 * @throws Exception If the encoding is not supported
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		m_document = Corpus.getDocument(m_corpus);
+		m_bytes = ByteBuffer.wrap(m_document.getBytes("UTF-8"));
+		m_parser = new JsonParser();
+	}
+
+	@Benchmark
+	public JsonElement parseString() throws JsonParseException
+	{
+		return m_parser.parse(m_document);
+	}
+
+	@Benchmark
+	public JsonElement parseBytes() throws JsonParseException
+	{
+		return m_parser.parse(m_bytes);
+	}
+
+	/**
+	 * Parses the bytes pushed in chunks of 1460 bytes, the usual payload
+	 * of a TCP segment
+	 */
+	@Benchmark
+	public JsonElement parseFeed() throws Exception
+	{
+		JsonElementBuilder builder = new JsonElementBuilder();
+		JSONFeedParser parser = new JSONFeedParser(builder);
+		ByteBuffer bytes = m_bytes.duplicate();
+		while (bytes.hasRemaining())
+		{
+			ByteBuffer chunk = bytes.slice();
+			chunk.limit(Math.min(1460, chunk.remaining()));
+			parser.feed(chunk);
+			bytes.position(bytes.position() + chunk.position());
+		}
+		parser.endOfInput();
+		return builder.getElement();
+	}
+}
@@ -0,0 +1,98 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.json.CompiledJsonPath;
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonParser;
+import ca.uqac.lif.json.JsonPath;
+
+/**
+ * Measures the lookup of a path in an element
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathBenchmark
+{
+	/**
+	 * The name of the corpus to query
+	 */
+	@Param({"small", "medium", "large", "deep", "wide"})
+	public String m_corpus;
+
+	/**
+	 * The element to query
+	 */
+	protected JsonElement m_element;
+
+	/**
+	 * The path to look up
+	 */
+	protected String m_path;
+
+	/**
+	 * The path to look up, compiled once
+	 */
+	protected CompiledJsonPath m_compiled;
+
+	/**
+	 * Parses the document and compiles the path
+	 * @throws Exception If the document cannot be parsed
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		m_element = new JsonParser().parse(Corpus.getDocument(m_corpus));
+		m_path = Corpus.getPath(m_corpus);
+		m_compiled = CompiledJsonPath.compile(m_path);
+		if (m_compiled.evaluate(m_element) == null)
+		{
+			throw new IllegalStateException("Path " + m_path + " not found");
+		}
+	}
+
+	@Benchmark
+	public JsonElement getString()
+	{
+		return JsonPath.get(m_element, m_path);
+	}
+
+	@Benchmark
+	public JsonElement getCompiled()
+	{
+		return m_compiled.evaluate(m_element);
+	}
+}
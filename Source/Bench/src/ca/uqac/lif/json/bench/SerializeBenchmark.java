@@ -0,0 +1,120 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json.bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.uqac.lif.json.JsonElement;
+import ca.uqac.lif.json.JsonParser;
+
+/**
+ * Measures the serialization of elements to strings and to a stream
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializeBenchmark
+{
+	/**
+	 * A stream that discards everything written to it
+	 */
+	protected static final OutputStream s_sink = new OutputStream()
+	{
+		@Override
+		public void write(int b)
+		{
+			// Discard
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			// Discard
+		}
+	};
+
+	/**
+	 * The UTF-8 character set
+	 */
+	protected static final Charset s_utf8 = Charset.forName("UTF-8");
+
+	/**
+	 * The name of the corpus to serialize
+	 */
+	@Param({"small", "medium", "large", "deep", "wide", "strings"})
+	public String m_corpus;
+
+	/**
+	 * The element to serialize
+	 */
+	protected JsonElement m_element;
+
+	/**
+	 * Parses the document
+	 * @throws Exception If the document cannot be parsed
+	 */
+	@Setup
+	public void setup() throws Exception
+	{
+		m_element = new JsonParser().parse(Corpus.getDocument(m_corpus));
+	}
+
+	@Benchmark
+	public String toStringCompact()
+	{
+		return m_element.toString();
+	}
+
+	@Benchmark
+	public String toCanonicalString()
+	{
+		return m_element.toCanonicalString();
+	}
+
+	@Benchmark
+	public StringBuilder writePretty() throws IOException
+	{
+		StringBuilder out = new StringBuilder();
+		m_element.writeTo(out, false);
+		return out;
+	}
+
+	@Benchmark
+	public void writeToStream() throws IOException
+	{
+		m_element.writeTo(s_sink, s_utf8, true);
+	}
+}
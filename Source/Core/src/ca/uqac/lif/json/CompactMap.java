@@ -0,0 +1,551 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map optimized for a small number of entries. Up to
+ * {@link #MAX_ARRAY_SIZE} entries, keys and values are stored in two
+ * parallel arrays, which are searched linearly; this takes much less
+ * memory than a {@link HashMap}, which needs a table and one node
+ * object per entry, and is just as fast for such sizes. When the map
+ * grows beyond that size, its entries are moved to a {@link HashMap}.
+ * <p>
+ * While the entries are in arrays, they are iterated in the order in
+ * which they were inserted. An <em>ordered</em> map keeps that order
+ * once it grows, by moving its entries to a {@link LinkedHashMap}
+ * instead. Like {@link HashMap}, this map accepts null keys and values,
+ * and is not thread-safe.
+ *
+ * @param <K> The type of the keys
+ * @param <V> The type of the values
+ */
+public class CompactMap<K,V> extends AbstractMap<K,V>
+{
+	/**
+	 * The maximum number of entries stored in arrays
+	 */
+	public static final int MAX_ARRAY_SIZE = 8;
+
+	/**
+	 * The initial length of the arrays
+	 */
+	protected static final int INITIAL_CAPACITY = 4;
+
+	/**
+	 * The keys, when the entries are stored in arrays
+	 */
+	protected Object[] m_keys;
+
+	/**
+	 * The values, when the entries are stored in arrays
+	 */
+	protected Object[] m_values;
+
+	/**
+	 * The number of entries stored in the arrays
+	 */
+	protected int m_size;
+
+	/**
+	 * The map holding the entries once there are too many for the arrays,
+	 * or null
+	 */
+	protected Map<K,V> m_hash;
+
+	/**
+	 * The number of structural modifications, used to detect concurrent
+	 * modifications during an iteration
+	 */
+	protected int m_modCount;
+
+	/**
+	 * The set of entries, created on first use
+	 */
+	protected transient Set<Map.Entry<K,V>> m_entrySet;
+
+	/**
+	 * Whether the entries are kept in insertion order
+	 */
+	protected final boolean m_ordered;
+
+	/**
+	 * Creates a new empty map
+	 */
+	public CompactMap()
+	{
+		this(false);
+	}
+
+	/**
+	 * Creates a new empty map
+	 * @param ordered Set to true to keep the entries in insertion order
+	 *   regardless of the size of the map
+	 */
+	public CompactMap(boolean ordered)
+	{
+		super();
+		m_ordered = ordered;
+	}
+
+	/**
+	 * Determines if the entries of this map are kept in insertion order
+	 * @return true if the map is ordered, false otherwise
+	 */
+	public boolean isOrdered()
+	{
+		return m_ordered;
+	}
+
+	/**
+	 * Creates the map to which entries are moved once there are too many
+	 * for the arrays
+	 * @return The map
+	 */
+	protected Map<K,V> newHashMap()
+	{
+		if (m_ordered)
+		{
+			return new LinkedHashMap<K,V>(4 * MAX_ARRAY_SIZE);
+		}
+		return new HashMap<K,V>(4 * MAX_ARRAY_SIZE);
+	}
+
+	/**
+	 * Finds the position of a key in the arrays
+	 * @param key The key
+	 * @return The position, or -1 if the key is absent
+	 */
+	protected int indexOf(Object key)
+	{
+		Object[] keys = m_keys;
+		int size = m_size;
+		if (key == null)
+		{
+			for (int i = 0; i < size; i++)
+			{
+				if (keys[i] == null)
+				{
+					return i;
+				}
+			}
+			return -1;
+		}
+		for (int i = 0; i < size; i++)
+		{
+			Object k = keys[i];
+			if (k == key || key.equals(k))
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int size()
+	{
+		return m_hash != null ? m_hash.size() : m_size;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return size() == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key)
+	{
+		if (m_hash != null)
+		{
+			return m_hash.containsKey(key);
+		}
+		return indexOf(key) >= 0;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V get(Object key)
+	{
+		if (m_hash != null)
+		{
+			return m_hash.get(key);
+		}
+		int i = indexOf(key);
+		return i < 0 ? null : (V) m_values[i];
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V put(K key, V value)
+	{
+		if (m_hash != null)
+		{
+			return m_hash.put(key, value);
+		}
+		int i = indexOf(key);
+		if (i >= 0)
+		{
+			V old = (V) m_values[i];
+			m_values[i] = value;
+			return old;
+		}
+		m_modCount++;
+		if (m_size == MAX_ARRAY_SIZE)
+		{
+			// Too many entries: move them to a hash map
+			Map<K,V> hash = newHashMap();
+			for (int j = 0; j < m_size; j++)
+			{
+				hash.put((K) m_keys[j], (V) m_values[j]);
+			}
+			hash.put(key, value);
+			m_hash = hash;
+			m_keys = null;
+			m_values = null;
+			m_size = 0;
+			return null;
+		}
+		if (m_keys == null)
+		{
+			m_keys = new Object[INITIAL_CAPACITY];
+			m_values = new Object[INITIAL_CAPACITY];
+		}
+		else if (m_size == m_keys.length)
+		{
+			int capacity = Math.min(m_size * 2, MAX_ARRAY_SIZE);
+			Object[] keys = new Object[capacity];
+			Object[] values = new Object[capacity];
+			System.arraycopy(m_keys, 0, keys, 0, m_size);
+			System.arraycopy(m_values, 0, values, 0, m_size);
+			m_keys = keys;
+			m_values = values;
+		}
+		m_keys[m_size] = key;
+		m_values[m_size] = value;
+		m_size++;
+		return null;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key)
+	{
+		if (m_hash != null)
+		{
+			return m_hash.remove(key);
+		}
+		int i = indexOf(key);
+		if (i < 0)
+		{
+			return null;
+		}
+		V old = (V) m_values[i];
+		removeAt(i);
+		return old;
+	}
+
+	/**
+	 * Removes the entry at some position in the arrays, keeping the
+	 * other entries in the same order
+	 * @param i The position
+	 */
+	protected void removeAt(int i)
+	{
+		m_modCount++;
+		int moved = m_size - i - 1;
+		if (moved > 0)
+		{
+			System.arraycopy(m_keys, i + 1, m_keys, i, moved);
+			System.arraycopy(m_values, i + 1, m_values, i, moved);
+		}
+		m_size--;
+		m_keys[m_size] = null;
+		m_values[m_size] = null;
+	}
+
+	@Override
+	public void clear()
+	{
+		m_modCount++;
+		m_hash = null;
+		m_keys = null;
+		m_values = null;
+		m_size = 0;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		if (m_hash != null)
+		{
+			return m_hash.hashCode();
+		}
+		int h = 0;
+		for (int i = 0; i < m_size; i++)
+		{
+			Object k = m_keys[i];
+			Object v = m_values[i];
+			h += (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this)
+		{
+			return true;
+		}
+		if (m_hash != null || !(o instanceof Map))
+		{
+			return super.equals(o);
+		}
+		// Same as AbstractMap, but without creating entry objects
+		Map<?,?> other = (Map<?,?>) o;
+		if (other.size() != m_size)
+		{
+			return false;
+		}
+		CompactMap<?,?> compact = null;
+		if (o instanceof CompactMap && ((CompactMap<?,?>) o).m_hash == null)
+		{
+			compact = (CompactMap<?,?>) o;
+		}
+		try
+		{
+			for (int i = 0; i < m_size; i++)
+			{
+				Object k = m_keys[i];
+				Object v = m_values[i];
+				if (compact != null && k != null && k.equals(compact.m_keys[i]))
+				{
+					// Maps built from similar documents often have their keys
+					// in the same order, which saves a search
+					Object v2 = compact.m_values[i];
+					if (v == null ? v2 != null : !v.equals(v2))
+					{
+						return false;
+					}
+					continue;
+				}
+				if (v == null)
+				{
+					if (other.get(k) != null || !other.containsKey(k))
+					{
+						return false;
+					}
+				}
+				else if (!v.equals(other.get(k)))
+				{
+					return false;
+				}
+			}
+		}
+		catch (ClassCastException e)
+		{
+			return false;
+		}
+		catch (NullPointerException e)
+		{
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public Set<Map.Entry<K,V>> entrySet()
+	{
+		if (m_entrySet == null)
+		{
+			m_entrySet = new EntrySet();
+		}
+		return m_entrySet;
+	}
+
+	/**
+	 * The set of entries of the map. It is a view that reflects the
+	 * current storage of the map, whether arrays or a hash map.
+	 */
+	protected class EntrySet extends AbstractSet<Map.Entry<K,V>>
+	{
+		@Override
+		public Iterator<Map.Entry<K,V>> iterator()
+		{
+			if (m_hash != null)
+			{
+				return m_hash.entrySet().iterator();
+			}
+			return new ArrayIterator();
+		}
+
+		@Override
+		public int size()
+		{
+			return CompactMap.this.size();
+		}
+
+		@Override
+		public void clear()
+		{
+			CompactMap.this.clear();
+		}
+	}
+
+	/**
+	 * An iterator over the entries stored in the arrays
+	 */
+	protected class ArrayIterator implements Iterator<Map.Entry<K,V>>
+	{
+		/**
+		 * The position of the next entry
+		 */
+		protected int m_next = 0;
+
+		/**
+		 * The position of the last entry returned, or -1
+		 */
+		protected int m_last = -1;
+
+		/**
+		 * The modification count expected by this iterator
+		 */
+		protected int m_expectedModCount = m_modCount;
+
+		@Override
+		public boolean hasNext()
+		{
+			return m_next < m_size;
+		}
+
+		@Override
+		public Map.Entry<K,V> next()
+		{
+			if (m_expectedModCount != m_modCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			if (m_next >= m_size)
+			{
+				throw new NoSuchElementException();
+			}
+			m_last = m_next++;
+			return new ArrayEntry(m_last);
+		}
+
+		@Override
+		public void remove()
+		{
+			if (m_last < 0)
+			{
+				throw new IllegalStateException();
+			}
+			if (m_expectedModCount != m_modCount)
+			{
+				throw new ConcurrentModificationException();
+			}
+			removeAt(m_last);
+			m_next = m_last;
+			m_last = -1;
+			m_expectedModCount = m_modCount;
+		}
+	}
+
+	/**
+	 * An entry stored in the arrays
+	 */
+	protected class ArrayEntry implements Map.Entry<K,V>
+	{
+		/**
+		 * The position of the entry
+		 */
+		protected final int m_index;
+
+		/**
+		 * Creates a new entry
+		 * @param index The position of the entry
+		 */
+		public ArrayEntry(int index)
+		{
+			super();
+			m_index = index;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public K getKey()
+		{
+			return (K) m_keys[m_index];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V getValue()
+		{
+			return (V) m_values[m_index];
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V setValue(V value)
+		{
+			V old = (V) m_values[m_index];
+			m_values[m_index] = value;
+			return old;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Map.Entry))
+			{
+				return false;
+			}
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? e.getKey() == null : k.equals(e.getKey()))
+					&& (v == null ? e.getValue() == null : v.equals(e.getValue()));
+		}
+
+		@Override
+		public int hashCode()
+		{
+			Object k = getKey();
+			Object v = getValue();
+			return (k == null ? 0 : k.hashCode()) ^ (v == null ? 0 : v.hashCode());
+		}
+
+		@Override
+		public String toString()
+		{
+			return getKey() + "=" + getValue();
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ca.uqac.lif.json.JsonPath.CardinalityPathElement;
+import ca.uqac.lif.json.JsonPath.KeyPathElement;
+import ca.uqac.lif.json.JsonPath.PathElement;
+
+/**
+ * A {@link JsonPath} expression that has been parsed once and for all,
+ * and can be evaluated on any number of JSON elements. The steps of the
+ * path are stored in arrays, and evaluating the path does not create
+ * any object.
+ * <p>
+ * Compiled paths are immutable and can be shared between threads.
+ * Use {@link #compile(String)} to obtain one; compiled expressions are
+ * kept in a cache, so that compiling the same path string again does not
+ * parse it a second time. The cache is emptied when it reaches
+ * {@value #MAX_CACHE_SIZE} entries.
+ */
+public class CompiledJsonPath
+{
+	/**
+	 * The maximum number of path expressions kept in the cache. Once it is
+	 * reached, the cache is emptied before a new expression is added.
+	 */
+	protected static final int MAX_CACHE_SIZE = 256;
+
+	/**
+	 * The cache of compiled expressions, indexed by path string
+	 */
+	protected static final ConcurrentHashMap<String,CompiledJsonPath> s_cache = new ConcurrentHashMap<String,CompiledJsonPath>();
+
+	/**
+	 * The string this path was compiled from
+	 */
+	protected final String m_path;
+
+	/**
+	 * For each step, the key to look up, or null if the step is an
+	 * index in a list
+	 */
+	protected final String[] m_keys;
+
+	/**
+	 * For each step that is an index in a list, the index to look up
+	 */
+	protected final int[] m_indices;
+
+	/**
+	 * Gets the compiled version of a path expression. The expression is
+	 * taken from the cache if it has been compiled before.
+	 * @param path A string representing the path to follow
+	 * @return The compiled path
+	 */
+	public static CompiledJsonPath compile(String path)
+	{
+		CompiledJsonPath cp = s_cache.get(path);
+		if (cp == null)
+		{
+			cp = new CompiledJsonPath(path, JsonPath.getPathElements(path));
+			if (s_cache.size() >= MAX_CACHE_SIZE)
+			{
+				// Simplest eviction policy: start over. Keeping the most
+				// recently used entries would require locking on every hit
+				s_cache.clear();
+			}
+			s_cache.put(path, cp);
+		}
+		return cp;
+	}
+
+	/**
+	 * Creates a compiled path from a list of path elements
+	 * @param path A string representing the path
+	 * @param elements The path elements obtained from this string
+	 */
+	protected CompiledJsonPath(String path, List<PathElement> elements)
+	{
+		super();
+		m_path = path;
+		m_keys = new String[elements.size()];
+		m_indices = new int[elements.size()];
+		int i = 0;
+		for (PathElement pe : elements)
+		{
+			if (pe instanceof KeyPathElement)
+			{
+				m_keys[i] = ((KeyPathElement) pe).m_key;
+			}
+			else
+			{
+				m_indices[i] = ((CardinalityPathElement) pe).m_card;
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Retrieves part of a JSON element based on this path
+	 * @param root The element to look into
+	 * @return A JSON element corresponding to the end of the path,
+	 *   or null if the path does not correspond to anything in
+	 *   the JSON element
+	 */
+	public JsonElement evaluate(JsonElement root)
+	{
+		JsonElement cursor = root;
+		for (int i = 0; i < m_keys.length; i++)
+		{
+			String key = m_keys[i];
+			if (key != null && cursor instanceof JsonMap)
+			{
+				cursor = ((JsonMap) cursor).get(key);
+			}
+			else if (key == null && cursor instanceof JsonList)
+			{
+				cursor = ((JsonList) cursor).get(m_indices[i]);
+			}
+			else
+			{
+				return null;
+			}
+		}
+		return cursor;
+	}
+
+	/**
+	 * Produces a frozen copy of a JSON element where the end of this path
+	 * is replaced by another element. Only the maps and lists along the
+	 * path are copied; all the other parts of the element are frozen and
+	 * shared with the copy, so that the cost of the operation depends on
+	 * the length of the path and not on the size of the element. If the
+	 * last step of the path is a key that does not exist, it is added.
+	 * @param root The element to update. It is frozen.
+	 * @param value The element to put at the end of the path. It is
+	 *   frozen.
+	 * @return The updated element, or null if the path does not
+	 *   correspond to anything in the JSON element
+	 * @throws IndexOutOfBoundsException If an index in the path is out
+	 *   of range
+	 * @see JsonMap#with(String, JsonElement)
+	 * @see JsonList#with(int, JsonElement)
+	 */
+	public JsonElement with(JsonElement root, JsonElement value)
+	{
+		return with(root, 0, value);
+	}
+
+	/**
+	 * Replaces the end of this path, starting from some step
+	 * @param cursor The element reached before that step
+	 * @param step The step
+	 * @param value The element to put at the end of the path
+	 * @return The updated element, or null if the path does not
+	 *   correspond to anything in the JSON element
+	 */
+	protected JsonElement with(JsonElement cursor, int step, JsonElement value)
+	{
+		if (step == m_keys.length)
+		{
+			return value.freeze();
+		}
+		String key = m_keys[step];
+		if (key != null && cursor instanceof JsonMap)
+		{
+			JsonMap map = (JsonMap) cursor;
+			JsonElement child = with(map.get(key), step + 1, value);
+			return child == null ? null : map.with(key, child);
+		}
+		if (key == null && cursor instanceof JsonList)
+		{
+			JsonList list = (JsonList) cursor;
+			JsonElement child = with(list.get(m_indices[step]), step + 1, value);
+			return child == null ? null : list.with(m_indices[step], child);
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the number of steps in this path
+	 * @return The number of steps
+	 */
+	public int length()
+	{
+		return m_keys.length;
+	}
+
+	@Override
+	public String toString()
+	{
+		return m_path;
+	}
+}
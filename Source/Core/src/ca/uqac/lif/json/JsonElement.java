@@ -17,9 +17,22 @@
  */
 package ca.uqac.lif.json;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
 /**
  * Implementation of a JSON element. All concrete elements of a JSON object
  * (maps, lists, number, strings) are descendents of this class.
+ * <p>
+ * Besides {@link #toString()}, an element can be serialized by writing it
+ * to an {@link Appendable} or an {@link OutputStream} with one of the
+ * <tt>writeTo</tt> methods. These methods produce exactly the same text,
+ * but write it in a single pass as the element is traversed, without
+ * building intermediate strings for the nested elements.
  */
 public abstract class JsonElement implements Comparable<JsonElement>
 {
@@ -36,5 +49,175 @@ public abstract class JsonElement implements Comparable<JsonElement>
   
   protected abstract String toString(String indent, boolean compact);
   
+  /**
+   * Writes this element in compact form
+   * @param out The destination of the text
+   * @throws IOException If writing to the destination fails
+   */
+  public void writeTo(Appendable out) throws IOException
+  {
+  	write(out, "", true);
+  }
+  
+  /**
+   * Writes this element
+   * @param out The destination of the text
+   * @param compact Set to false to pretty-print the element on
+   *   multiple lines
+   * @throws IOException If writing to the destination fails
+   */
+  public void writeTo(Appendable out, boolean compact) throws IOException
+  {
+  	write(out, "", compact);
+  }
+  
+  /**
+   * Writes this element in compact form to an output stream. The stream
+   * is flushed, but not closed.
+   * @param out The output stream
+   * @param charset The character set used to encode the text
+   * @throws IOException If writing to the stream fails
+   */
+  public void writeTo(OutputStream out, Charset charset) throws IOException
+  {
+  	writeTo(out, charset, true);
+  }
+  
+  /**
+   * Writes this element to an output stream. The stream is flushed, but
+   * not closed.
+   * @param out The output stream
+   * @param charset The character set used to encode the text
+   * @param compact Set to false to pretty-print the element on
+   *   multiple lines
+   * @throws IOException If writing to the stream fails
+   */
+  public void writeTo(OutputStream out, Charset charset, boolean compact) throws IOException
+  {
+  	Writer writer = new BufferedWriter(new OutputStreamWriter(out, charset));
+  	write(writer, "", compact);
+  	writer.flush();
+  }
+  
+  /**
+   * Writes this element in canonical form. The canonical form is the
+   * compact form, with the keys of every map written in lexicographical
+   * order; two elements with the same contents therefore produce the
+   * same text, regardless of the order in which their keys were
+   * inserted.
+   * @param out The destination of the text
+   * @throws IOException If writing to the destination fails
+   */
+  public void writeCanonicalTo(Appendable out) throws IOException
+  {
+  	writeCanonical(out);
+  }
+  
+  /**
+   * Produces the canonical form of this element
+   * @return The text
+   * @see #writeCanonicalTo(Appendable)
+   */
+  public String toCanonicalString()
+  {
+  	StringBuilder out = new StringBuilder();
+  	try
+  	{
+  		writeCanonical(out);
+  	}
+  	catch (IOException e)
+  	{
+  		// Cannot happen with a StringBuilder
+  		throw new IllegalStateException(e);
+  	}
+  	return out.toString();
+  }
+  
+  /**
+   * Writes this element in canonical form. Elements that contain other
+   * elements should override this method; by default, the compact form
+   * is written.
+   * @param out The destination of the text
+   * @throws IOException If writing to the destination fails
+   */
+  protected void writeCanonical(Appendable out) throws IOException
+  {
+  	write(out, "", true);
+  }
+  
+  /**
+   * Writes this element. Descendents that contain other elements should
+   * override this method and write their contents directly to
+   * <tt>out</tt>; by default, the result of
+   * {@link #toString(String, boolean)} is appended.
+   * @param out The destination of the text
+   * @param indent The indentation to use when pretty-printing
+   * @param compact Whether to produce compact output
+   * @throws IOException If writing to the destination fails
+   */
+  protected void write(Appendable out, String indent, boolean compact) throws IOException
+  {
+  	out.append(toString(indent, compact));
+  }
+  
+  /**
+   * Produces the string returned by {@link #toString(String, boolean)}
+   * by calling {@link #write(Appendable, String, boolean)} on a
+   * string builder
+   * @param indent The indentation to use when pretty-printing
+   * @param compact Whether to produce compact output
+   * @return The string
+   */
+  protected final String writeToString(String indent, boolean compact)
+  {
+  	StringBuilder out = new StringBuilder();
+  	try
+  	{
+  		write(out, indent, compact);
+  	}
+  	catch (IOException e)
+  	{
+  		// Cannot happen with a StringBuilder
+  		throw new IllegalStateException(e);
+  	}
+  	return out.toString();
+  }
+  
+  /**
+   * Makes this element immutable. Scalar elements are always immutable,
+   * so this method does nothing by default; maps and lists override it.
+   * @return This element
+   */
+  public JsonElement freeze()
+  {
+  	return this;
+  }
+  
+  /**
+   * Determines if this element is immutable
+   * @return true if the element is immutable, false otherwise
+   * @see #freeze()
+   */
+  public boolean isFrozen()
+  {
+  	return true;
+  }
+  
+  /**
+   * Copies an element when cloning the map or list that contains it.
+   * Maps and lists are cloned, while scalar elements, which are
+   * immutable, are shared with the copy.
+   * @param e The element
+   * @return The copy
+   */
+  protected static JsonElement copy(JsonElement e)
+  {
+  	if (e instanceof JsonMap || e instanceof JsonList)
+  	{
+  		return e.clone();
+  	}
+  	return e;
+  }
+  
   public abstract JsonElement clone();
 }
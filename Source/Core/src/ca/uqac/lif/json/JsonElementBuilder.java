@@ -0,0 +1,247 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.json.simple.parser.PrimitiveContentHandler;
+
+/**
+ * Content handler that builds a {@link JsonElement} directly from the
+ * events produced by the parser, so that the document is traversed and
+ * allocated only once.
+ * <p>
+ * Maps are created as soon as their opening brace is read. The elements
+ * of a list, on the other hand, are accumulated on a scratch stack
+ * shared by all open lists; the {@link JsonList} is only created when
+ * its closing bracket is read, at which point its size is known and its
+ * storage can be allocated with the exact capacity.
+ * <p>
+ * Numbers are received from the parser as primitive values, and are
+ * stored in {@link JsonNumber}s without being boxed first.
+ */
+public class JsonElementBuilder implements PrimitiveContentHandler
+{
+	/**
+	 * For each open container, the innermost last, the map being filled,
+	 * or null if the container is a list
+	 */
+	protected JsonMap[] m_maps;
+
+	/**
+	 * For each open list, the position in {@link #m_elements} of its
+	 * first element
+	 */
+	protected int[] m_starts;
+
+	/**
+	 * For each open container, the key under which it must be put in
+	 * its parent, if the parent is a map
+	 */
+	protected String[] m_keys;
+
+	/**
+	 * The number of open containers
+	 */
+	protected int m_depth;
+
+	/**
+	 * The elements of all the lists that are currently open
+	 */
+	protected ArrayList<JsonElement> m_elements;
+
+	/**
+	 * The key of the object entry currently being read
+	 */
+	protected String m_key;
+
+	/**
+	 * The element built from the last document
+	 */
+	protected JsonElement m_root;
+
+	/**
+	 * Whether the maps created keep their keys in insertion order
+	 */
+	protected final boolean m_orderedMaps;
+
+	/**
+	 * Creates a new builder
+	 */
+	public JsonElementBuilder()
+	{
+		this(false);
+	}
+
+	/**
+	 * Creates a new builder
+	 * @param ordered_maps Set to true to create maps that keep their keys
+	 *   in the order in which they appear in the document
+	 */
+	public JsonElementBuilder(boolean ordered_maps)
+	{
+		super();
+		m_orderedMaps = ordered_maps;
+		m_maps = new JsonMap[16];
+		m_starts = new int[16];
+		m_keys = new String[16];
+		m_elements = new ArrayList<JsonElement>();
+	}
+
+	/**
+	 * Gets the element built from the last document that was parsed
+	 * @return The element, or null if no document was parsed
+	 */
+	public JsonElement getElement()
+	{
+		return m_root;
+	}
+
+	@Override
+	public void startJSON()
+	{
+		m_depth = 0;
+		m_elements.clear();
+		m_key = null;
+		m_root = null;
+	}
+
+	@Override
+	public void endJSON()
+	{
+		// Nothing to do
+	}
+
+	@Override
+	public boolean startObject()
+	{
+		JsonMap map = new JsonMap(m_orderedMaps);
+		attach(map);
+		push(map);
+		return true;
+	}
+
+	@Override
+	public boolean endObject()
+	{
+		m_depth--;
+		m_maps[m_depth] = null;
+		return true;
+	}
+
+	@Override
+	public boolean startObjectEntry(String key)
+	{
+		m_key = key;
+		return true;
+	}
+
+	@Override
+	public boolean endObjectEntry()
+	{
+		return true;
+	}
+
+	@Override
+	public boolean startArray()
+	{
+		push(null);
+		return true;
+	}
+
+	@Override
+	public boolean endArray()
+	{
+		m_depth--;
+		int start = m_starts[m_depth];
+		int end = m_elements.size();
+		JsonList list = new JsonList(end - start);
+		for (int i = start; i < end; i++)
+		{
+			list.add(m_elements.get(i));
+		}
+		m_elements.subList(start, end).clear();
+		m_key = m_keys[m_depth];
+		m_keys[m_depth] = null;
+		attach(list);
+		return true;
+	}
+
+	@Override
+	public boolean primitive(Object value)
+	{
+		attach(JsonParser.wrap(value));
+		return true;
+	}
+
+	@Override
+	public boolean primitive(long value)
+	{
+		attach(JsonParser.wrap(value));
+		return true;
+	}
+
+	@Override
+	public boolean primitive(double value)
+	{
+		attach(new JsonNumber(value));
+		return true;
+	}
+
+	/**
+	 * Opens a new container
+	 * @param map The map to fill, or null if the container is a list
+	 */
+	protected void push(JsonMap map)
+	{
+		if (m_depth == m_maps.length)
+		{
+			m_maps = Arrays.copyOf(m_maps, m_depth * 2);
+			m_starts = Arrays.copyOf(m_starts, m_depth * 2);
+			m_keys = Arrays.copyOf(m_keys, m_depth * 2);
+		}
+		m_maps[m_depth] = map;
+		m_starts[m_depth] = m_elements.size();
+		m_keys[m_depth] = m_key;
+		m_depth++;
+	}
+
+	/**
+	 * Adds an element to the innermost open container, or makes it the
+	 * root if no container is open
+	 * @param e The element
+	 */
+	protected void attach(JsonElement e)
+	{
+		if (m_depth == 0)
+		{
+			m_root = e;
+			return;
+		}
+		JsonMap parent = m_maps[m_depth - 1];
+		if (parent != null)
+		{
+			parent.put(m_key, e);
+		}
+		else
+		{
+			m_elements.add(e);
+		}
+	}
+}
@@ -0,0 +1,371 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * Reads a sequence of JSON elements written one per line, in the format
+ * known as <a href="http://jsonlines.org">JSON Lines</a> or NDJSON.
+ * <p>
+ * Lines are read as UTF-8 bytes into a buffer that is reused from one
+ * line to the next, and are parsed directly from that buffer, without
+ * ever being converted into strings. The buffer grows as needed to hold
+ * the longest line. Blank lines are ignored.
+ * <p>
+ * An error on one line does not prevent the reading of the next ones.
+ * When calling {@link #readNext()}, a line that cannot be parsed causes
+ * a {@link JsonParseException}, after which reading can resume at the
+ * following line. When the reader is used as an {@link Iterator},
+ * lines that cannot be parsed are skipped; their number can be obtained
+ * with {@link #getErrorCount()}. Since the lines are consumed as they
+ * are read, the reader can only be iterated once: {@link #iterator()}
+ * returns the reader itself, and throws an exception if it is called a
+ * second time.
+ * <p>
+ * A line containing only <tt>null</tt> produces {@link JsonNull#instance}.
+ */
+public class JsonLinesReader implements Iterator<JsonElement>, Iterable<JsonElement>, Closeable
+{
+	/**
+	 * The initial size of the buffer
+	 */
+	protected static final int BUFFER_SIZE = 65536;
+
+	/**
+	 * The stream to read from
+	 */
+	protected final InputStream m_in;
+
+	/**
+	 * The parser used for each line
+	 */
+	protected final JsonParser m_parser = new JsonParser();
+
+	/**
+	 * The buffer holding the bytes read from the stream
+	 */
+	protected byte[] m_buffer;
+
+	/**
+	 * The position in the buffer of the first byte not yet consumed
+	 */
+	protected int m_start;
+
+	/**
+	 * The position in the buffer where the search for the next line end
+	 * resumes
+	 */
+	protected int m_scan;
+
+	/**
+	 * The position in the buffer after the last byte read
+	 */
+	protected int m_end;
+
+	/**
+	 * Whether the end of the stream has been reached
+	 */
+	protected boolean m_eof;
+
+	/**
+	 * The number of lines read so far
+	 */
+	protected long m_lineNumber;
+
+	/**
+	 * The number of lines skipped by the iterator because they could not
+	 * be parsed
+	 */
+	protected int m_errorCount;
+
+	/**
+	 * The element to be returned by the next call to {@link #next()}, if
+	 * it has already been read
+	 */
+	protected JsonElement m_next;
+
+	/**
+	 * Whether {@link #iterator()} has already been called
+	 */
+	protected boolean m_iterated;
+
+	/**
+	 * Creates a new reader
+	 * @param in The stream to read from
+	 */
+	public JsonLinesReader(InputStream in)
+	{
+		super();
+		m_in = in;
+		m_buffer = new byte[BUFFER_SIZE];
+	}
+
+	/**
+	 * Creates a new reader
+	 * @param f The file to read from
+	 * @throws IOException If the file cannot be opened
+	 */
+	public JsonLinesReader(File f) throws IOException
+	{
+		this(new FileInputStream(f));
+	}
+
+	/**
+	 * Sets whether object keys are interned
+	 * @param intern true to intern keys
+	 * @see JsonParser#setInternKeys(boolean)
+	 */
+	public void setInternKeys(boolean intern)
+	{
+		m_parser.setInternKeys(intern);
+	}
+
+	/**
+	 * Sets whether the maps produced keep their keys in document order
+	 * @param ordered true to preserve the order of keys
+	 * @see JsonParser#setOrderedMaps(boolean)
+	 */
+	public void setOrderedMaps(boolean ordered)
+	{
+		m_parser.setOrderedMaps(ordered);
+	}
+
+	/**
+	 * Reads the element on the next non-blank line
+	 * @return The element, or null if the end of the stream is reached
+	 * @throws IOException If reading the stream fails
+	 * @throws JsonParseException If the line does not contain a valid JSON
+	 *   element. The next call to this method will read the following line.
+	 */
+	public JsonElement readNext() throws IOException, JsonParseException
+	{
+		while (true)
+		{
+			int line_end = indexOfNewline();
+			int next_start;
+			if (line_end < 0)
+			{
+				if (!m_eof)
+				{
+					fill();
+					continue;
+				}
+				if (m_start == m_end)
+				{
+					return null;
+				}
+				line_end = m_end;
+				next_start = m_end;
+			}
+			else
+			{
+				next_start = line_end + 1;
+			}
+			int start = m_start;
+			m_start = next_start;
+			m_scan = next_start;
+			m_lineNumber++;
+			if (m_lineNumber == 1 && line_end - start >= 3 && m_buffer[start] == (byte) 0xEF
+					&& m_buffer[start + 1] == (byte) 0xBB && m_buffer[start + 2] == (byte) 0xBF)
+			{
+				// Skip the byte order mark
+				start += 3;
+			}
+			if (isBlank(start, line_end))
+			{
+				continue;
+			}
+			JsonElement e;
+			try
+			{
+				e = m_parser.parse(m_buffer, start, line_end - start);
+			}
+			catch (JsonParseException ex)
+			{
+				throw new JsonParseException("Line " + m_lineNumber + ": " + ex.getMessage());
+			}
+			return e == null ? JsonNull.instance : e;
+		}
+	}
+
+	/**
+	 * Gets the number of lines read so far, including blank lines and
+	 * lines that could not be parsed
+	 * @return The number of lines
+	 */
+	public long getLineNumber()
+	{
+		return m_lineNumber;
+	}
+
+	/**
+	 * Gets the number of lines skipped by the iterator because they could
+	 * not be parsed
+	 * @return The number of lines
+	 */
+	public int getErrorCount()
+	{
+		return m_errorCount;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		while (m_next == null)
+		{
+			try
+			{
+				m_next = readNext();
+				if (m_next == null)
+				{
+					return false;
+				}
+			}
+			catch (JsonParseException e)
+			{
+				m_errorCount++;
+			}
+			catch (IOException e)
+			{
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public JsonElement next()
+	{
+		if (!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		JsonElement e = m_next;
+		m_next = null;
+		return e;
+	}
+
+	@Override
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Gets an iterator over the elements that remain to be read. The
+	 * iterator is the reader itself, and can only be obtained once.
+	 * @return The reader
+	 * @throws IllegalStateException If this method has already been
+	 *   called
+	 */
+	@Override
+	public Iterator<JsonElement> iterator()
+	{
+		if (m_iterated)
+		{
+			throw new IllegalStateException("A JsonLinesReader can only be iterated once");
+		}
+		m_iterated = true;
+		return this;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		m_in.close();
+	}
+
+	/**
+	 * Finds the end of the current line in the buffer
+	 * @return The position of the next newline character, or -1 if the
+	 *   buffer does not contain one
+	 */
+	protected int indexOfNewline()
+	{
+		byte[] buffer = m_buffer;
+		for (int i = m_scan; i < m_end; i++)
+		{
+			if (buffer[i] == '\n')
+			{
+				return i;
+			}
+		}
+		m_scan = m_end;
+		return -1;
+	}
+
+	/**
+	 * Determines if a region of the buffer contains only whitespace
+	 * @param start The start of the region
+	 * @param end The end of the region
+	 * @return true if the region is blank, false otherwise
+	 */
+	protected boolean isBlank(int start, int end)
+	{
+		for (int i = start; i < end; i++)
+		{
+			byte b = m_buffer[i];
+			if (b != ' ' && b != '\t' && b != '\r')
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Reads more bytes from the stream. The bytes not yet consumed are
+	 * first moved to the beginning of the buffer, and the buffer is
+	 * enlarged if they already fill it.
+	 * @throws IOException If reading the stream fails
+	 */
+	protected void fill() throws IOException
+	{
+		if (m_start > 0)
+		{
+			System.arraycopy(m_buffer, m_start, m_buffer, 0, m_end - m_start);
+			m_end -= m_start;
+			m_scan -= m_start;
+			m_start = 0;
+		}
+		if (m_end == m_buffer.length)
+		{
+			byte[] buffer = new byte[m_buffer.length * 2];
+			System.arraycopy(m_buffer, 0, buffer, 0, m_end);
+			m_buffer = buffer;
+		}
+		int read = m_in.read(m_buffer, m_end, m_buffer.length - m_end);
+		if (read < 0)
+		{
+			m_eof = true;
+		}
+		else
+		{
+			m_end += read;
+		}
+	}
+}
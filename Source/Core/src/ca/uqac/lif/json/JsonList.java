@@ -17,20 +17,192 @@
  */
 package ca.uqac.lif.json;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
 public class JsonList extends JsonElement implements List<JsonElement>
 {
+	/**
+	 * The elements of the list. The list is array-backed, so that
+	 * accessing an element by its index takes constant time.
+	 */
 	protected List<JsonElement> m_list;
 
+	/**
+	 * Whether this list is immutable
+	 */
+	protected boolean m_frozen = false;
+
+	/**
+	 * Whether the elements of this list are those of a frozen list, which
+	 * this list shares instead of having its own copy
+	 * @see #clone()
+	 */
+	protected boolean m_shared = false;
+
+	/**
+	 * The hash code of this list, or 0 if it has not been computed. The
+	 * hash code is only kept while the list is frozen or shares the
+	 * elements of a frozen list.
+	 */
+	protected int m_hashCode = 0;
+
+	/**
+	 * Creates a new empty list
+	 */
 	public JsonList()
 	{
 		super();
-		m_list = new LinkedList<JsonElement>();
+		m_list = new ArrayList<JsonElement>();
+	}
+
+	/**
+	 * Creates a new empty list with room for a given number of elements
+	 * @param capacity The number of elements the list is expected to
+	 *   contain
+	 */
+	public JsonList(int capacity)
+	{
+		super();
+		m_list = new ArrayList<JsonElement>(capacity);
+	}
+
+	/**
+	 * Makes this list and all the elements it contains immutable. Once
+	 * frozen, a list throws an {@link UnsupportedOperationException} on
+	 * any attempt to modify it, and can be read by multiple threads at
+	 * once without copying it, provided it is published safely. A
+	 * modified version of a frozen list is obtained with
+	 * {@link #with(int, JsonElement)}, {@link #withAdded(JsonElement)}
+	 * and {@link #without(int)}, and a mutable copy with {@link #clone()}.
+	 * @return This list
+	 */
+	@Override
+	public JsonList freeze()
+	{
+		if (!m_frozen)
+		{
+			if (!m_shared)
+			{
+				for (JsonElement e : m_list)
+				{
+					e.freeze();
+				}
+			}
+			// Shared elements are already frozen and can remain shared
+			m_shared = false;
+			m_frozen = true;
+		}
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen()
+	{
+		return m_frozen;
+	}
+
+	/**
+	 * Prepares this list for a modification. An exception is thrown if
+	 * the list is frozen; otherwise, the list gets its own elements if it
+	 * shares them.
+	 */
+	protected void checkMutable()
+	{
+		if (m_frozen)
+		{
+			throw new UnsupportedOperationException("This list is frozen");
+		}
+		unshare();
+	}
+
+	/**
+	 * Gives this list its own elements, if it shares those of a frozen
+	 * list. This must be done before the list is modified, and before it
+	 * gives access to its elements. Only this level of the list is copied;
+	 * the elements are replaced by clones, which share their contents in
+	 * turn.
+	 * @see JsonMap#unshare()
+	 */
+	protected void unshare()
+	{
+		if (m_shared)
+		{
+			List<JsonElement> list = new ArrayList<JsonElement>(m_list.size());
+			for (int i = 0; i < m_list.size(); i++)
+			{
+				list.add(copy(m_list.get(i)));
+			}
+			m_list = list;
+			m_shared = false;
+			// The elements are now clones that can be modified
+			m_hashCode = 0;
+		}
+	}
+
+	/**
+	 * Produces a frozen list with the same elements as this one, except
+	 * for the element at some position, which is replaced. This list is
+	 * left unchanged and is frozen, so that the new list can share all its
+	 * other elements instead of copying them.
+	 * @param index The position of the element to replace
+	 * @param element The new element. It is frozen.
+	 * @return The new list
+	 * @throws IndexOutOfBoundsException If the index is out of range
+	 */
+	public JsonList with(int index, JsonElement element)
+	{
+		JsonList list = frozenCopy(0);
+		list.m_list.set(index, element.freeze());
+		return list;
+	}
+
+	/**
+	 * Produces a frozen list with the same elements as this one, followed
+	 * by a new element. The elements of this list are shared, as in
+	 * {@link #with(int, JsonElement)}.
+	 * @param element The new element. It is frozen.
+	 * @return The new list
+	 */
+	public JsonList withAdded(JsonElement element)
+	{
+		JsonList list = frozenCopy(1);
+		list.m_list.add(element.freeze());
+		return list;
+	}
+
+	/**
+	 * Produces a frozen list with the same elements as this one, except
+	 * for the element at some position. The elements of this list are
+	 * shared, as in {@link #with(int, JsonElement)}.
+	 * @param index The position of the element to remove
+	 * @return The new list
+	 * @throws IndexOutOfBoundsException If the index is out of range
+	 */
+	public JsonList without(int index)
+	{
+		JsonList list = frozenCopy(0);
+		list.m_list.remove(index);
+		return list;
+	}
+
+	/**
+	 * Freezes this list and copies its elements into a new frozen list
+	 * @param extra The number of elements to leave room for
+	 * @return The new list
+	 */
+	protected JsonList frozenCopy(int extra)
+	{
+		freeze();
+		JsonList list = new JsonList(m_list.size() + extra);
+		list.m_list.addAll(m_list);
+		list.m_frozen = true;
+		return list;
 	}
 
 	public static String toJsonString(Collection<String> list)
@@ -53,79 +225,100 @@ public class JsonList extends JsonElement implements List<JsonElement>
 	@Override
 	public String toString(String indent, boolean compact)
 	{
-		StringBuilder out = new StringBuilder();
-		out.append(indent).append("[");
+		return writeToString(indent, compact);
+	}
+
+	@Override
+	protected void write(Appendable out, String indent, boolean compact) throws IOException
+	{
+		out.append(indent).append('[');
 		if (!compact)
-			out.append("\n");
+			out.append('\n');
+		String child_indent = compact ? "" : indent + "  ";
 		boolean first = true;
-		for (JsonElement e : this)
+		for (JsonElement e : m_list)
 		{
 			if (first)
 				first = false;
 			else
 			{
-				out.append(",");
+				out.append(',');
 				if (!compact)
 				{
-					out.append("\n");
+					out.append('\n');
 				}
 			}
+			e.write(out, child_indent, compact);
 			if (!compact)
 			{
-				out.append(e.toString(indent + "  ", compact));
-				out.append("\n").append(indent);
+				out.append('\n').append(indent);
 			}
-			else
+		}
+		out.append(']');
+	}
+
+	@Override
+	protected void writeCanonical(Appendable out) throws IOException
+	{
+		out.append('[');
+		for (int i = 0; i < m_list.size(); i++)
+		{
+			if (i > 0)
 			{
-				out.append(e.toString("", compact));
+				out.append(',');
 			}
+			m_list.get(i).writeCanonical(out);
 		}
-		out.append("]");
-		return out.toString();
+		out.append(']');
 	}
 
 	@Override
 	public boolean add(JsonElement e)
 	{
+		checkMutable();
 		return m_list.add(e);
 	}
 
 	public boolean add(String s)
 	{
-		return m_list.add(new JsonString(s));
+		return add(new JsonString(s));
 	}
 
 	public boolean add(Number n)
 	{
-		return m_list.add(new JsonNumber(n));
+		return add(new JsonNumber(n));
 	}
 
 	@Override
 	public void add(int index, JsonElement element)
 	{
+		checkMutable();
 		m_list.add(index, element);
 	}
 
 	public void add(int index, String element)
 	{
-		m_list.add(index, new JsonString(element));
+		add(index, new JsonString(element));
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends JsonElement> c)
 	{
+		checkMutable();
 		return m_list.addAll(c);
 	}
 
 	@Override
 	public boolean addAll(int index, Collection<? extends JsonElement> c)
 	{
+		checkMutable();
 		return m_list.addAll(index, c);
 	}
 
 	@Override
 	public void clear()
 	{
+		checkMutable();
 		m_list.clear();
 	}
 
@@ -144,6 +337,7 @@ public class JsonList extends JsonElement implements List<JsonElement>
 	@Override
 	public JsonElement get(int index)
 	{
+		unshare();
 		return m_list.get(index);
 	}
 
@@ -162,6 +356,11 @@ public class JsonList extends JsonElement implements List<JsonElement>
 	@Override
 	public Iterator<JsonElement> iterator()
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableList(m_list).iterator();
+		}
+		unshare();
 		return m_list.iterator();
 	}
 
@@ -174,42 +373,57 @@ public class JsonList extends JsonElement implements List<JsonElement>
 	@Override
 	public ListIterator<JsonElement> listIterator()
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableList(m_list).listIterator();
+		}
+		unshare();
 		return m_list.listIterator();
 	}
 
 	@Override
 	public ListIterator<JsonElement> listIterator(int index)
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableList(m_list).listIterator(index);
+		}
+		unshare();
 		return m_list.listIterator(index);
 	}
 
 	@Override
 	public boolean remove(Object o)
 	{
+		checkMutable();
 		return m_list.remove(o);
 	}
 
 	@Override
 	public JsonElement remove(int index)
 	{
+		checkMutable();
 		return m_list.remove(index);
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> c)
 	{
+		checkMutable();
 		return m_list.removeAll(c);
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> c)
 	{
+		checkMutable();
 		return m_list.retainAll(c);
 	}
 
 	@Override
 	public JsonElement set(int index, JsonElement element)
 	{
+		checkMutable();
 		return m_list.set(index, element);
 	}
 
@@ -222,25 +436,84 @@ public class JsonList extends JsonElement implements List<JsonElement>
 	@Override
 	public List<JsonElement> subList(int fromIndex, int toIndex)
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableList(m_list).subList(fromIndex, toIndex);
+		}
+		unshare();
 		return m_list.subList(fromIndex, toIndex);
 	}
 
 	@Override
 	public Object[] toArray()
 	{
+		unshare();
 		return m_list.toArray();
 	}
 
 	@Override
 	public <T> T[] toArray(T[] a)
 	{
+		unshare();
 		return m_list.toArray(a);
 	}
 
+	/**
+	 * Computes the hash code of this list, as defined by {@link List}. The
+	 * hash code of a frozen list is computed only once.
+	 * @return The hash code
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = m_hashCode;
+		if (h == 0)
+		{
+			h = m_list.hashCode();
+			if (m_frozen || m_shared)
+			{
+				m_hashCode = h;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Determines if this list has the same elements as another list, in
+	 * the same order. As for {@link JsonMap#equals(Object)}, the hash codes
+	 * of two frozen lists are compared first.
+	 * @param o The other object
+	 * @return true if the object is a list with the same elements, false
+	 *   otherwise
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this)
+		{
+			return true;
+		}
+		if (!(o instanceof JsonList))
+		{
+			return o instanceof List && m_list.equals(o);
+		}
+		JsonList other = (JsonList) o;
+		if (size() != other.size())
+		{
+			return false;
+		}
+		if ((m_frozen || m_shared) && (other.m_frozen || other.m_shared)
+				&& hashCode() != other.hashCode())
+		{
+			return false;
+		}
+		return m_list.equals(other.m_list);
+	}
+
 	@Override
 	public int compareTo(JsonElement e) 
 	{
-		if (equals(e))
+		if (e == this)
 		{
 			return 0;
 		}
@@ -282,14 +555,29 @@ public class JsonList extends JsonElement implements List<JsonElement>
 		return -1;
 	}
 
+	/**
+	 * Creates a mutable copy of this list. Like {@link JsonMap#clone()},
+	 * the copy of a frozen list takes constant time and shares the
+	 * elements of the list until it is modified or they are accessed;
+	 * otherwise, the maps and lists it contains are cloned and its scalar
+	 * elements are shared.
+	 * @return The copy
+	 */
 	@Override
 	public JsonList clone()
 	{
-		JsonList list = new JsonList();
-		Iterator<JsonElement> it = iterator();
-		while(it.hasNext())
+		if (m_frozen || m_shared)
+		{
+			JsonList list = new JsonList(0);
+			list.m_list = m_list;
+			list.m_shared = true;
+			list.m_hashCode = m_hashCode;
+			return list;
+		}
+		JsonList list = new JsonList(m_list.size());
+		for (int i = 0; i < m_list.size(); i++)
 		{
-			list.add(it.next().clone());
+			list.m_list.add(copy(m_list.get(i)));
 		}
 		return list;
 	}
@@ -17,56 +17,248 @@
  */
 package ca.uqac.lif.json;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
+import org.json.simple.JSONValue;
+
 public class JsonMap extends JsonElement implements Map<String,JsonElement>
 {
 	protected Map<String,JsonElement> m_map;
 
+	/**
+	 * Whether this map is immutable
+	 */
+	protected boolean m_frozen = false;
+
+	/**
+	 * Whether the entries of this map are those of a frozen map, which
+	 * this map shares instead of having its own copy
+	 * @see #clone()
+	 */
+	protected boolean m_shared = false;
+
+	/**
+	 * The hash code of this map, or 0 if it has not been computed. The
+	 * hash code is only kept while the contents of the map cannot change,
+	 * that is, while the map is frozen or shares the entries of a frozen
+	 * map.
+	 */
+	protected int m_hashCode = 0;
+
 	public JsonMap()
+	{
+		this(false);
+	}
+
+	/**
+	 * Creates a new empty map
+	 * @param ordered Set to true to keep the keys in insertion order.
+	 *   Otherwise, only maps with few keys keep that order, and larger
+	 *   maps iterate over their keys in hash order.
+	 */
+	public JsonMap(boolean ordered)
 	{
 		super();
-		m_map = new HashMap<String,JsonElement>();
+		m_map = new CompactMap<String,JsonElement>(ordered);
+	}
+
+	/**
+	 * Determines if this map keeps its keys in insertion order
+	 * @return true if the map is ordered, false otherwise
+	 */
+	public boolean isOrdered()
+	{
+		return m_map instanceof CompactMap && ((CompactMap<?,?>) m_map).isOrdered();
+	}
+
+	/**
+	 * Makes this map and all the elements it contains immutable. Once
+	 * frozen, a map throws an {@link UnsupportedOperationException} on
+	 * any attempt to modify it, and can be read by multiple threads at
+	 * once without copying it, provided it is published safely (for
+	 * example through a final or volatile field). A modified version of
+	 * a frozen map is obtained with {@link #with(String, JsonElement)}
+	 * and {@link #without(String)}, and a mutable copy with
+	 * {@link #clone()}.
+	 * @return This map
+	 */
+	@Override
+	public JsonMap freeze()
+	{
+		if (!m_frozen)
+		{
+			if (!m_shared)
+			{
+				for (JsonElement e : m_map.values())
+				{
+					e.freeze();
+				}
+			}
+			// Shared entries are already frozen and can remain shared
+			m_shared = false;
+			m_frozen = true;
+		}
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen()
+	{
+		return m_frozen;
+	}
+
+	/**
+	 * Prepares this map for a modification. An exception is thrown if
+	 * the map is frozen; otherwise, the map gets its own entries if it
+	 * shares them.
+	 */
+	protected void checkMutable()
+	{
+		if (m_frozen)
+		{
+			throw new UnsupportedOperationException("This map is frozen");
+		}
+		unshare();
+	}
+
+	/**
+	 * Gives this map its own entries, if it shares those of a frozen map.
+	 * This must be done before the map is modified, and before it
+	 * gives access to its values, since the values of the frozen map
+	 * cannot be handed out as they are. Only this level of the map is
+	 * copied; the values are replaced by clones, which share the contents
+	 * of the values in turn.
+	 */
+	protected void unshare()
+	{
+		if (m_shared)
+		{
+			Map<String,JsonElement> map = new CompactMap<String,JsonElement>(isOrdered());
+			for (Map.Entry<String,JsonElement> entry : m_map.entrySet())
+			{
+				map.put(entry.getKey(), copy(entry.getValue()));
+			}
+			m_map = map;
+			m_shared = false;
+			// The values are now clones that can be modified
+			m_hashCode = 0;
+		}
+	}
+
+	/**
+	 * Produces a frozen map with the same entries as this one, except
+	 * that a key is associated with a new value. This map is left
+	 * unchanged and is frozen, so that the new map can share all its
+	 * other values instead of copying them. Only the entries of this map
+	 * are copied; the cost of the operation does not depend on the size
+	 * of the values.
+	 * @param key The key
+	 * @param value The value to associate with the key. It is frozen.
+	 * @return The new map
+	 */
+	public JsonMap with(String key, JsonElement value)
+	{
+		freeze();
+		JsonMap map = new JsonMap(isOrdered());
+		map.m_map.putAll(m_map);
+		map.m_map.put(key, value.freeze());
+		map.m_frozen = true;
+		return map;
+	}
+
+	/**
+	 * Produces a frozen map with the same entries as this one, except for
+	 * a key. Like {@link #with(String, JsonElement)}, this map is frozen
+	 * and its values are shared with the new map.
+	 * @param key The key to remove
+	 * @return The new map
+	 */
+	public JsonMap without(String key)
+	{
+		freeze();
+		JsonMap map = new JsonMap(isOrdered());
+		map.m_map.putAll(m_map);
+		map.m_map.remove(key);
+		map.m_frozen = true;
+		return map;
 	}
 
 	@Override
 	public String toString(String indent, boolean compact)
 	{
-		StringBuilder out = new StringBuilder();
-		out.append(indent).append("{");
+		return writeToString(indent, compact);
+	}
+
+	@Override
+	protected void write(Appendable out, String indent, boolean compact) throws IOException
+	{
+		out.append(indent).append('{');
 		if (!compact)
-			out.append("\n");
+			out.append('\n');
+		String child_indent = compact ? "" : indent + "    ";
 		boolean first = true;
-		for (String k : keySet())
+		for (Map.Entry<String,JsonElement> entry : m_map.entrySet())
 		{
 			if (first)
 				first = false;
 			else
 			{
-				out.append(",");
+				out.append(',');
 				if (!compact)
 				{
-					out.append("\n");
+					out.append('\n');
 				}
 			}
-			JsonElement v = get(k);
 			if (!compact)
 			{
-				out.append(indent).append("  ").append("\"").append(k).append("\" : ");
-				out.append(v.toString(indent + "    ", compact));
-				out.append("\n").append(indent);
+				out.append(indent).append("  \"");
+				JSONValue.escape(entry.getKey(), out);
+				out.append("\" : ");
+				entry.getValue().write(out, child_indent, compact);
+				out.append('\n').append(indent);
 			}
 			else
 			{
-				out.append("\"").append(k).append("\":");
-				out.append(v.toString("", compact));
+				out.append('"');
+				JSONValue.escape(entry.getKey(), out);
+				out.append("\":");
+				entry.getValue().write(out, child_indent, compact);
+			}
+		}
+		out.append('}');
+	}
+
+	@Override
+	protected void writeCanonical(Appendable out) throws IOException
+	{
+		String[] keys = m_map.keySet().toArray(new String[m_map.size()]);
+		// Parsed documents often have their keys already sorted
+		for (int i = 1; i < keys.length; i++)
+		{
+			if (keys[i - 1].compareTo(keys[i]) > 0)
+			{
+				Arrays.sort(keys);
+				break;
+			}
+		}
+		out.append('{');
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (i > 0)
+			{
+				out.append(',');
 			}
+			out.append('"');
+			JSONValue.escape(keys[i], out);
+			out.append("\":");
+			m_map.get(keys[i]).writeCanonical(out);
 		}
-		out.append("}");
-		return out.toString();
+		out.append('}');
 	}
 
 	public JsonElement put(String arg0, Number arg1)
@@ -104,6 +296,7 @@ public class JsonMap extends JsonElement implements Map<String,JsonElement>
 	@Override
 	public void clear()
 	{
+		checkMutable();
 		m_map.clear();
 	}
 
@@ -122,23 +315,29 @@ public class JsonMap extends JsonElement implements Map<String,JsonElement>
 	@Override
 	public Set<java.util.Map.Entry<String, JsonElement>> entrySet()
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableMap(m_map).entrySet();
+		}
+		unshare();
 		return m_map.entrySet();
 	}
 
 	@Override
 	public JsonElement get(Object arg0)
 	{
+		unshare();
 		return m_map.get(arg0);
 	}
 
 	public String getString(Object arg0)
 	{
-		return ((JsonString) m_map.get(arg0)).stringValue();
+		return ((JsonString) get(arg0)).stringValue();
 	}
 
 	public Number getNumber(Object arg0)
 	{
-		return ((JsonNumber) m_map.get(arg0)).numberValue();
+		return ((JsonNumber) get(arg0)).numberValue();
 	}
 
 	public int getInt(Object arg0)
@@ -155,24 +354,32 @@ public class JsonMap extends JsonElement implements Map<String,JsonElement>
 	@Override
 	public Set<String> keySet()
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableMap(m_map).keySet();
+		}
+		unshare();
 		return m_map.keySet();
 	}
 
 	@Override
 	public JsonElement put(String arg0, JsonElement arg1)
 	{
+		checkMutable();
 		return m_map.put(arg0, arg1);
 	}
 
 	@Override
 	public void putAll(Map<? extends String, ? extends JsonElement> arg0)
 	{
+		checkMutable();
 		m_map.putAll(arg0);
 	}
 
 	@Override
 	public JsonElement remove(Object arg0)
 	{
+		checkMutable();
 		return m_map.remove(arg0);
 	}
 
@@ -185,13 +392,70 @@ public class JsonMap extends JsonElement implements Map<String,JsonElement>
 	@Override
 	public Collection<JsonElement> values()
 	{
+		if (m_frozen)
+		{
+			return Collections.unmodifiableMap(m_map).values();
+		}
+		unshare();
 		return m_map.values();
 	}
 
+	/**
+	 * Computes the hash code of this map, as defined by {@link Map}. The
+	 * hash code of a frozen map is computed only once.
+	 * @return The hash code
+	 */
+	@Override
+	public int hashCode()
+	{
+		int h = m_hashCode;
+		if (h == 0)
+		{
+			h = m_map.hashCode();
+			if (m_frozen || m_shared)
+			{
+				m_hashCode = h;
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Determines if this map has the same entries as another map. When
+	 * both maps are frozen, their hash codes are compared first, so that
+	 * most unequal maps are told apart without looking at their contents.
+	 * @param o The other object
+	 * @return true if the object is a map with the same entries, false
+	 *   otherwise
+	 */
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == this)
+		{
+			return true;
+		}
+		if (!(o instanceof JsonMap))
+		{
+			return o instanceof Map && m_map.equals(o);
+		}
+		JsonMap other = (JsonMap) o;
+		if (size() != other.size())
+		{
+			return false;
+		}
+		if ((m_frozen || m_shared) && (other.m_frozen || other.m_shared)
+				&& hashCode() != other.hashCode())
+		{
+			return false;
+		}
+		return m_map.equals(other.m_map);
+	}
+
 	@Override
 	public int compareTo(JsonElement e) 
 	{
-		if (equals(e))
+		if (e == this)
 		{
 			return 0;
 		}
@@ -219,12 +483,35 @@ public class JsonMap extends JsonElement implements Map<String,JsonElement>
 		return -1;
 	}
 
+	/**
+	 * Creates a mutable copy of this map. Modifying the copy does not
+	 * affect this map, and vice versa.
+	 * <p>
+	 * If this map is frozen, the copy shares its entries, and takes
+	 * constant time. The copy only gets its own entries when it is first
+	 * modified or when one of its values is accessed, and the values it
+	 * then receives share their contents in the same way. Cloning a frozen
+	 * template and changing a few values therefore only copies the maps
+	 * and lists along the way to these values.
+	 * <p>
+	 * Otherwise, the maps and lists of this map are copied, except for
+	 * the frozen ones, which are cloned as above. Scalar values are
+	 * immutable and are never copied.
+	 * @return The copy
+	 */
 	@Override
 	public JsonMap clone() {
-		JsonMap map = new JsonMap();
-		for(String key : keySet())
+		JsonMap map = new JsonMap(isOrdered());
+		if (m_frozen || m_shared)
+		{
+			map.m_map = m_map;
+			map.m_shared = true;
+			map.m_hashCode = m_hashCode;
+			return map;
+		}
+		for (Map.Entry<String,JsonElement> entry : m_map.entrySet())
 		{
-			map.put(key, get(key).clone());
+			map.m_map.put(entry.getKey(), copy(entry.getValue()));
 		}
 		return map;
 	}
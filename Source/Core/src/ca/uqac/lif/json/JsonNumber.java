@@ -18,12 +18,52 @@
 package ca.uqac.lif.json;
 
 /**
- * Implementation of a numeric value in a JSON structure
+ * Implementation of a numeric value in a JSON structure.
+ * <p>
+ * Integers, longs and doubles are stored as primitive values, and can
+ * be read with {@link #longValue()} and {@link #doubleValue()} without
+ * creating any object. Only other kinds of numbers (such as
+ * <tt>Float</tt> or <tt>BigDecimal</tt>) are kept as a {@link Number}.
  */
 public class JsonNumber extends JsonElement
 {
 	/**
-	 * The number value
+	 * Type of a number stored in {@link #m_long} and that fits in an int
+	 */
+	private static final byte TYPE_INT = 0;
+
+	/**
+	 * Type of a number stored in {@link #m_long}
+	 */
+	private static final byte TYPE_LONG = 1;
+
+	/**
+	 * Type of a number stored in {@link #m_double}
+	 */
+	private static final byte TYPE_DOUBLE = 2;
+
+	/**
+	 * Type of a number stored in {@link #m_number}
+	 */
+	private static final byte TYPE_OTHER = 3;
+
+	/**
+	 * The type of this number, which tells which field holds its value
+	 */
+	private byte m_type;
+
+	/**
+	 * The value of this number, if it is an int or a long
+	 */
+	private long m_long;
+
+	/**
+	 * The value of this number, if it is a double
+	 */
+	private double m_double;
+
+	/**
+	 * The value of this number, if it is of any other type
 	 */
 	private Number m_number;
 	
@@ -35,6 +75,50 @@ public class JsonNumber extends JsonElement
 		this(0);
 	}
 
+	/**
+	 * Creates a new JSON number from an int
+	 * @param n The number
+	 */
+	public JsonNumber(int n)
+	{
+		super();
+		m_type = TYPE_INT;
+		m_long = n;
+	}
+
+	/**
+	 * Creates a new JSON number from a long
+	 * @param n The number
+	 */
+	public JsonNumber(long n)
+	{
+		super();
+		m_type = TYPE_LONG;
+		m_long = n;
+	}
+
+	/**
+	 * Creates a new JSON number from a double
+	 * @param n The number
+	 */
+	public JsonNumber(double n)
+	{
+		super();
+		m_type = TYPE_DOUBLE;
+		m_double = n;
+	}
+
+	/**
+	 * Creates a new JSON number from a float. The float is kept as a
+	 * {@link Number}, so that {@link #numberValue()} returns a
+	 * <tt>Float</tt> as it would for a boxed float.
+	 * @param n The number
+	 */
+	public JsonNumber(float n)
+	{
+		this(Float.valueOf(n));
+	}
+
 	/**
 	 * Creates a new JSON number from a Java number
 	 * @param n The number
@@ -42,22 +126,119 @@ public class JsonNumber extends JsonElement
 	public JsonNumber(Number n)
 	{
 		super();
-		m_number = n;
+		if (n instanceof Integer)
+		{
+			m_type = TYPE_INT;
+			m_long = n.intValue();
+		}
+		else if (n instanceof Long)
+		{
+			m_type = TYPE_LONG;
+			m_long = n.longValue();
+		}
+		else if (n instanceof Double)
+		{
+			m_type = TYPE_DOUBLE;
+			m_double = n.doubleValue();
+		}
+		else
+		{
+			m_type = TYPE_OTHER;
+			m_number = n;
+		}
 	}
 
 	/**
-	 * Returns the number value of this JSON number
+	 * Returns the number value of this JSON number. The number is an
+	 * <tt>Integer</tt>, <tt>Long</tt> or <tt>Double</tt> if this JSON
+	 * number was created from one of these types; for these types, a new
+	 * object may be created on every call.
 	 * @return The number
 	 */
 	public Number numberValue()
 	{
-		return m_number;
+		switch (m_type)
+		{
+		case TYPE_INT:
+			return Integer.valueOf((int) m_long);
+		case TYPE_LONG:
+			return Long.valueOf(m_long);
+		case TYPE_DOUBLE:
+			return Double.valueOf(m_double);
+		default:
+			return m_number;
+		}
+	}
+
+	/**
+	 * Returns the value of this JSON number as a long, rounding towards
+	 * zero if necessary
+	 * @return The value
+	 */
+	public long longValue()
+	{
+		switch (m_type)
+		{
+		case TYPE_INT:
+		case TYPE_LONG:
+			return m_long;
+		case TYPE_DOUBLE:
+			return (long) m_double;
+		default:
+			return m_number.longValue();
+		}
+	}
+
+	/**
+	 * Returns the value of this JSON number as a double
+	 * @return The value
+	 */
+	public double doubleValue()
+	{
+		switch (m_type)
+		{
+		case TYPE_INT:
+		case TYPE_LONG:
+			return (double) m_long;
+		case TYPE_DOUBLE:
+			return m_double;
+		default:
+			return m_number.doubleValue();
+		}
+	}
+
+	/**
+	 * Returns the value of this JSON number as a float. This is the value
+	 * used to compare numbers.
+	 * @return The value
+	 */
+	protected float floatValue()
+	{
+		switch (m_type)
+		{
+		case TYPE_INT:
+		case TYPE_LONG:
+			return (float) m_long;
+		case TYPE_DOUBLE:
+			return (float) m_double;
+		default:
+			return m_number.floatValue();
+		}
 	}
 
 	@Override
 	public String toString(String indent, boolean compact)
 	{
-		return m_number.toString();
+		switch (m_type)
+		{
+		case TYPE_INT:
+		case TYPE_LONG:
+			return Long.toString(m_long);
+		case TYPE_DOUBLE:
+			return Double.toString(m_double);
+		default:
+			return m_number.toString();
+		}
 	}
 
 	/**
@@ -93,7 +274,14 @@ public class JsonNumber extends JsonElement
 	@Override
 	public int hashCode()
 	{
-		return m_number.hashCode();
+		// Consistent with equals, which compares the float values; 0 and
+		// -0 are equal, and must have the same hash code
+		float f = floatValue();
+		if (f == 0f)
+		{
+			return 0;
+		}
+		return Float.floatToIntBits(f);
 	}
 	
 	@Override
@@ -107,7 +295,7 @@ public class JsonNumber extends JsonElement
 		{
 			return true;
 		}
-		return m_number.floatValue() == (((JsonNumber) o).m_number).floatValue();
+		return floatValue() == ((JsonNumber) o).floatValue();
 	}
 
 	@Override
@@ -123,8 +311,8 @@ public class JsonNumber extends JsonElement
 		}
 		if (e instanceof JsonNumber)
 		{
-			float my_f = m_number.floatValue();
-			float other_f = ((JsonNumber) e).m_number.floatValue();
+			float my_f = floatValue();
+			float other_f = ((JsonNumber) e).floatValue();
 			if (my_f < other_f)
 			{
 				return -1;
@@ -141,6 +329,11 @@ public class JsonNumber extends JsonElement
 	@Override
 	public JsonNumber clone()
 	{
-		return new JsonNumber(m_number);
+		JsonNumber n = new JsonNumber();
+		n.m_type = m_type;
+		n.m_long = m_long;
+		n.m_double = m_double;
+		n.m_number = m_number;
+		return n;
 	}
 }
@@ -17,18 +17,54 @@
  */
 package ca.uqac.lif.json;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
+import org.json.simple.parser.Yylex;
 
 /**
  * A parser for JSON strings.
+ * <p>
+ * Instances of this class can be shared and used concurrently by
+ * multiple threads. The underlying {@link JSONParser} (which holds the
+ * lexer and its buffer) is not thread-safe; each thread therefore gets
+ * its own, which is reused across all the calls made by that thread.
  */
 public class JsonParser
 {
-	private static transient JSONParser s_parser = new JSONParser();
+	/**
+	 * The low-level parser used by each thread
+	 */
+	private static final transient ThreadLocal<JSONParser> s_parsers = new ThreadLocal<JSONParser>()
+	{
+		@Override
+		protected JSONParser initialValue()
+		{
+			return new JSONParser();
+		}
+	};
 	
+	/**
+	 * Whether object keys are interned
+	 */
+	protected boolean m_internKeys = false;
+
+	/**
+	 * Whether the maps produced keep their keys in document order
+	 */
+	protected boolean m_orderedMaps = false;
+
+	/**
+	 * The maximum nesting depth of objects and arrays
+	 */
+	protected int m_maxDepth = JSONParser.DEFAULT_MAX_DEPTH;
+
 	/**
 	 * Creates a new parser instance
 	 */
@@ -38,27 +74,336 @@ public class JsonParser
 	}
 
 	/**
-	 * Parses a string into a JSON element
+	 * Sets whether object keys are interned. When they are, the lexer of
+	 * each thread keeps a bounded table of the keys it has recently seen,
+	 * across documents; a key already in the table is reused instead of
+	 * allocating a new String. This saves both allocation and retained
+	 * memory when many documents share the same keys, at the price of a
+	 * table lookup for each key.
+	 * @param intern true to intern keys
+	 */
+	public void setInternKeys(boolean intern)
+	{
+		m_internKeys = intern;
+	}
+
+	/**
+	 * Determines if object keys are interned
+	 * @return true if keys are interned, false otherwise
+	 * @see #setInternKeys(boolean)
+	 */
+	public boolean getInternKeys()
+	{
+		return m_internKeys;
+	}
+
+	/**
+	 * Sets whether the maps produced by this parser keep their keys in the
+	 * order in which they appear in the document. By default, only maps
+	 * with few keys do; larger maps iterate over their keys in hash order.
+	 * Ordered maps take a little more memory once they grow.
+	 * @param ordered true to preserve the order of keys
+	 * @see JsonMap#JsonMap(boolean)
+	 */
+	public void setOrderedMaps(boolean ordered)
+	{
+		m_orderedMaps = ordered;
+	}
+
+	/**
+	 * Determines if the maps produced by this parser keep their keys in
+	 * document order
+	 * @return true if the order of keys is preserved, false otherwise
+	 * @see #setOrderedMaps(boolean)
+	 */
+	public boolean getOrderedMaps()
+	{
+		return m_orderedMaps;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of objects and arrays. Parsing a
+	 * document that nests deeper fails with a {@link JsonParseException}
+	 * as soon as the offending container is opened, which protects
+	 * against documents crafted to exhaust memory or the stack. The
+	 * default is {@value JSONParser#DEFAULT_MAX_DEPTH}.
+	 * <p>
+	 * With {@link #parseLazy(String)}, which parses one level of the
+	 * document at a time, the depth of each container is checked when its
+	 * parent is parsed. A container nested too deeply below the top level
+	 * is therefore reported when its parent is materialized, as an
+	 * {@link IllegalStateException}.
+	 * @param max The maximum depth, which must be at least 1
+	 */
+	public void setMaxDepth(int max)
+	{
+		if (max < 1)
+		{
+			throw new IllegalArgumentException("Maximum depth must be at least 1");
+		}
+		m_maxDepth = max;
+	}
+
+	/**
+	 * Gets the maximum nesting depth of objects and arrays
+	 * @return The maximum depth
+	 * @see #setMaxDepth(int)
+	 */
+	public int getMaxDepth()
+	{
+		return m_maxDepth;
+	}
+
+	/**
+	 * Creates the builder that turns the events of the low-level parser
+	 * into elements, configured with the settings of this parser
+	 * @return The builder
+	 */
+	protected JsonElementBuilder newBuilder()
+	{
+		return new JsonElementBuilder(m_orderedMaps);
+	}
+
+	/**
+	 * Gets the low-level parser of the current thread, configured with the
+	 * settings of this parser. The parser is kept for the next documents
+	 * parsed by the thread; callers release it once they are done, so
+	 * that it does not keep their input.
+	 * @return The parser
+	 */
+	protected JSONParser getParser()
+	{
+		JSONParser parser = s_parsers.get();
+		parser.setInternKeys(m_internKeys);
+		parser.setMaxDepth(m_maxDepth);
+		return parser;
+	}
+
+	/**
+	 * Parses a string into a JSON element. The element is built directly
+	 * from the tokens read by the parser, without going through an
+	 * intermediate tree of {@link JSONObject}s and {@link JSONArray}s.
 	 * @param s The string
 	 * @return The JSON element parsed from that string
 	 * @throws JsonParseException If something bad happened
 	 */
 	public JsonElement parse(String s) throws JsonParseException
 	{
-		Object obj = null;
+		JsonElementBuilder builder = newBuilder();
+		JSONParser parser = getParser();
+		try
+		{
+			parser.parse(s, builder);
+		}
+		catch (ParseException e)
+		{
+			throw new JsonParseException(e.toString());
+		}
+		finally
+		{
+			parser.release();
+		}
+		return getElement(builder);
+	}
+
+	/**
+	 * Parses a string into a JSON element whose nested objects and arrays
+	 * are only parsed when they are first accessed. Only the top level of
+	 * the document is parsed by this method; nested containers are passed
+	 * over by the lexer and returned as {@link LazyJsonMap}s and
+	 * {@link LazyJsonList}s, which keep a reference to the string.
+	 * <p>
+	 * This is useful when only a small part of a large document is read.
+	 * However, the text of a nested container is not validated when it is
+	 * passed over: only its brackets and string delimiters are matched. A
+	 * malformed document such as <tt>{"x":[1,}}</tt> is therefore accepted
+	 * by this method, and the error is only reported when the container is
+	 * materialized, by whichever method of the map or list first accesses
+	 * it, as an {@link IllegalStateException}; see {@link LazyJsonMap}.
+	 * <p>
+	 * The levels that are parsed are read by a {@link JsonReader}, which
+	 * rejects misplaced commas and colons. This method is therefore
+	 * stricter than {@link #parse(String)}, which accepts input such as
+	 * <tt>[1,]</tt> or <tt>{"a" 1}</tt>.
+	 * @param s The string
+	 * @return The JSON element parsed from that string
+	 * @throws JsonParseException If the top level of the string is not
+	 *   valid JSON
+	 */
+	public JsonElement parseLazy(String s) throws JsonParseException
+	{
+		JsonReader r = LazyJsonMap.openReader(s, 0, 0, m_maxDepth);
+		try
+		{
+			JsonElement out;
+			switch (r.next())
+			{
+			case JsonReader.START_OBJECT:
+				LazyJsonMap map = new LazyJsonMap(m_maxDepth);
+				map.populate(r, s, 0);
+				out = map;
+				break;
+			case JsonReader.START_ARRAY:
+				LazyJsonList list = new LazyJsonList(m_maxDepth);
+				list.populate(r, s, 0);
+				out = list;
+				break;
+			default:
+				out = r.readElement();
+			}
+			if (r.next() != JsonReader.END_DOCUMENT)
+			{
+				throw new JsonParseException("Unexpected content after the end of the document");
+			}
+			return out == JsonNull.instance ? null : out;
+		}
+		catch (IOException e)
+		{
+			// Cannot happen when reading from a string
+			throw new JsonParseException(e.toString());
+		}
+		finally
+		{
+			r.release();
+		}
+	}
+
+	/**
+	 * Parses an array of UTF-8 encoded bytes into a JSON element
+	 * @param bytes The bytes
+	 * @return The JSON element parsed from these bytes
+	 * @throws JsonParseException If something bad happened
+	 */
+	public JsonElement parse(byte[] bytes) throws JsonParseException
+	{
+		return parse(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Parses a region of an array of UTF-8 encoded bytes into a JSON
+	 * element
+	 * @param bytes The bytes
+	 * @param offset The position of the first byte to read
+	 * @param length The number of bytes to read
+	 * @return The JSON element parsed from these bytes
+	 * @throws JsonParseException If something bad happened
+	 */
+	public JsonElement parse(byte[] bytes, int offset, int length) throws JsonParseException
+	{
+		return parse(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Parses UTF-8 encoded bytes into a JSON element. The bytes are
+	 * decoded on the fly by the lexer, so that the input never needs to
+	 * be converted into a string first. The bytes read are those between
+	 * the position and the limit of the buffer; the position of the buffer
+	 * is left unchanged.
+	 * @param bytes The buffer containing the bytes. It can be either a
+	 *   heap or a direct buffer.
+	 * @return The JSON element parsed from these bytes
+	 * @throws JsonParseException If something bad happened
+	 */
+	public JsonElement parse(ByteBuffer bytes) throws JsonParseException
+	{
+		JsonElementBuilder builder = newBuilder();
+		JSONParser parser = getParser();
+		try
+		{
+			parser.parse(bytes, builder);
+		}
+		catch (ParseException e)
+		{
+			throw new JsonParseException(e.toString());
+		}
+		finally
+		{
+			parser.release();
+		}
+		return getElement(builder);
+	}
+
+	/**
+	 * Parses the contents of a file, encoded in UTF-8, into a JSON
+	 * element. The file is memory-mapped in successive windows, which the
+	 * lexer decodes directly; this is the preferred way of parsing very
+	 * large documents, including those larger than 2 GB.
+	 * @param f The file
+	 * @return The JSON element parsed from the file
+	 * @throws IOException If the file cannot be read
+	 * @throws JsonParseException If something bad happened
+	 */
+	public JsonElement parse(File f) throws IOException, JsonParseException
+	{
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
 		try
 		{
-			obj = s_parser.parse(s);
+			return parse(new MappedFileSource(raf.getChannel()));
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Parses UTF-8 encoded bytes supplied as a sequence of buffers into a
+	 * JSON element
+	 * @param source The source of the buffers
+	 * @return The JSON element parsed from these bytes
+	 * @throws IOException If the source fails to supply a buffer
+	 * @throws JsonParseException If something bad happened
+	 */
+	public JsonElement parse(Yylex.ByteSource source) throws IOException, JsonParseException
+	{
+		JsonElementBuilder builder = newBuilder();
+		JSONParser parser = getParser();
+		try
+		{
+			parser.parse(source, builder);
 		}
 		catch (ParseException e)
 		{
 			throw new JsonParseException(e.toString());
 		}
-		if (obj != null)
+		finally
 		{
-			return wrap(obj);
+			parser.release();
 		}
-		return null;
+		return getElement(builder);
+	}
+
+	/**
+	 * Gets the element produced by a builder at the end of a parsing
+	 * operation
+	 * @param builder The builder
+	 * @return The element
+	 */
+	protected static JsonElement getElement(JsonElementBuilder builder)
+	{
+		JsonElement out = builder.getElement();
+		if (out == JsonNull.instance)
+		{
+			// A document made of the single value null parses to null
+			return null;
+		}
+		return out;
+	}
+
+	/**
+	 * Creates a JSON number from an integer. Numbers that fit in the
+	 * width of an int are stored as ints, as {@link #wrap(Object)} does
+	 * for a <tt>Long</tt>.
+	 * @param n The integer
+	 * @return The JSON number
+	 */
+	protected static JsonNumber wrap(long n)
+	{
+		if (n <= Integer.MAX_VALUE && n >= Integer.MIN_VALUE)
+		{
+			return new JsonNumber((int) n);
+		}
+		return new JsonNumber(n);
 	}
 
 	/**
@@ -106,17 +451,7 @@ public class JsonParser
 		{
 			if (obj instanceof Long)
 			{
-				Long l_obj = (Long) obj;
-				if (l_obj.longValue() <= Integer.MAX_VALUE && l_obj.longValue() >= Integer.MIN_VALUE)
-				{
-					// If number fits in the width of an int, return an int
-					out = new JsonNumber(l_obj.intValue());
-				}
-				else
-				{
-					// Otherwise, return a long
-					out = new JsonNumber(l_obj.longValue());
-				}
+				out = wrap(((Long) obj).longValue());
 			}
 			else
 			{
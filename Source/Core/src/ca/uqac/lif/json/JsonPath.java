@@ -52,10 +52,27 @@ public class JsonPath
 	 * @return A JSON element corresponding to the end of the path,
 	 *   or null if the path does not correspond to anything in
 	 *   the JSON element
+	 * @see CompiledJsonPath
 	 */
 	public static JsonElement get(JsonElement root, String path)
 	{
-		return get(root, getPathElements(path));
+		return CompiledJsonPath.compile(path).evaluate(root);
+	}
+	
+	/**
+	 * Produces a frozen copy of a JSON element where the end of a path is
+	 * replaced by another element. The parts of the element that are not
+	 * on the path are shared with the copy.
+	 * @param root The element to update. It is frozen.
+	 * @param path A string representing the path to follow
+	 * @param value The element to put at the end of the path
+	 * @return The updated element, or null if the path does not
+	 *   correspond to anything in the JSON element
+	 * @see CompiledJsonPath#with(JsonElement, JsonElement)
+	 */
+	public static JsonElement with(JsonElement root, String path, JsonElement value)
+	{
+		return CompiledJsonPath.compile(path).with(root, value);
 	}
 	
 	/**
@@ -104,27 +121,25 @@ public class JsonPath
 	 */
 	public static JsonElement get(JsonElement root, List<PathElement> path)
 	{
-		if (path.isEmpty())
-		{
-			return root;
-		}
-		LinkedList<PathElement> new_path = new LinkedList<PathElement>(path);
-		PathElement first_path_el = new_path.removeFirst();
-		if (first_path_el instanceof KeyPathElement && root instanceof JsonMap)
+		JsonElement cursor = root;
+		for (PathElement path_el : path)
 		{
-			KeyPathElement kpe = (KeyPathElement) first_path_el;
-			JsonMap map = (JsonMap) root;
-			JsonElement cursor = map.get(kpe.m_key);
-			return get(cursor, new_path);
-		}
-		else if (first_path_el instanceof CardinalityPathElement && root instanceof JsonList)
-		{
-			CardinalityPathElement cpe = (CardinalityPathElement) first_path_el;
-			JsonList list = (JsonList) root;
-			JsonElement cursor = list.get(cpe.m_card);
-			return get(cursor, new_path);      
+			if (path_el instanceof KeyPathElement && cursor instanceof JsonMap)
+			{
+				KeyPathElement kpe = (KeyPathElement) path_el;
+				cursor = ((JsonMap) cursor).get(kpe.m_key);
+			}
+			else if (path_el instanceof CardinalityPathElement && cursor instanceof JsonList)
+			{
+				CardinalityPathElement cpe = (CardinalityPathElement) path_el;
+				cursor = ((JsonList) cursor).get(cpe.m_card);
+			}
+			else
+			{
+				return null;
+			}
 		}
-		return null;
+		return cursor;
 	}
 
 	/**
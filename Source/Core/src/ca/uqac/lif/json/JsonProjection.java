@@ -0,0 +1,353 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+import ca.uqac.lif.json.JsonPath.CardinalityPathElement;
+import ca.uqac.lif.json.JsonPath.KeyPathElement;
+import ca.uqac.lif.json.JsonPath.PathElement;
+
+/**
+ * Parses only the parts of a document designated by a set of
+ * {@link JsonPath} expressions. The paths are given once, when the
+ * projection is created; the projection can then be applied to any
+ * number of documents.
+ * <p>
+ * The result of parsing a document is a sparse copy of it: maps only
+ * contain the keys leading to one of the paths, and lists stop after
+ * the last index leading to one of the paths, their other elements
+ * being replaced by {@link JsonNull}. Evaluating any of the paths on
+ * this sparse element therefore gives the same result as on the full
+ * document. Every other part of the document is passed over with
+ * {@link JsonReader#skipValue()}, without building any element.
+ * <p>
+ * A projection can be shared by multiple threads.
+ */
+public class JsonProjection
+{
+	/**
+	 * The reader used by each thread
+	 */
+	private static final transient ThreadLocal<JsonReader> s_readers = new ThreadLocal<JsonReader>()
+	{
+		@Override
+		protected JsonReader initialValue()
+		{
+			return new JsonReader((Reader) null);
+		}
+	};
+
+	/**
+	 * The paths to extract, in the order they were given
+	 */
+	protected final String[] m_paths;
+
+	/**
+	 * The root of the tree formed by the steps of all the paths
+	 */
+	protected final Node m_root;
+
+	/**
+	 * Creates a new projection
+	 * @param paths The paths to extract
+	 */
+	public JsonProjection(String ... paths)
+	{
+		this(Arrays.asList(paths));
+	}
+
+	/**
+	 * Creates a new projection
+	 * @param paths The paths to extract
+	 */
+	public JsonProjection(Collection<String> paths)
+	{
+		super();
+		m_paths = paths.toArray(new String[paths.size()]);
+		m_root = new Node();
+		for (String path : m_paths)
+		{
+			Node n = m_root;
+			for (PathElement pe : JsonPath.getPathElements(path))
+			{
+				n = n.getChild(pe);
+			}
+			n.m_terminal = true;
+		}
+	}
+
+	/**
+	 * Parses the parts of a string designated by the paths
+	 * @param s The string
+	 * @return The sparse element, or null if none of the paths exist
+	 *   in the document
+	 * @throws JsonParseException If the string is not valid JSON
+	 */
+	public JsonElement parse(String s) throws JsonParseException
+	{
+		JsonReader r = s_readers.get();
+		r.reset(s);
+		return parse(r);
+	}
+
+	/**
+	 * Parses the parts of UTF-8 encoded bytes designated by the paths
+	 * @param bytes The bytes
+	 * @return The sparse element, or null if none of the paths exist
+	 *   in the document
+	 * @throws JsonParseException If the bytes are not valid JSON
+	 */
+	public JsonElement parse(byte[] bytes) throws JsonParseException
+	{
+		return parse(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Parses the parts of UTF-8 encoded bytes designated by the paths.
+	 * The position of the buffer is left unchanged.
+	 * @param bytes The bytes
+	 * @return The sparse element, or null if none of the paths exist
+	 *   in the document
+	 * @throws JsonParseException If the bytes are not valid JSON
+	 */
+	public JsonElement parse(ByteBuffer bytes) throws JsonParseException
+	{
+		JsonReader r = s_readers.get();
+		r.reset(bytes);
+		return parse(r);
+	}
+
+	/**
+	 * Parses the parts of a string designated by the paths, and
+	 * returns the value of each path
+	 * @param s The string
+	 * @return A map from each path present in the document to its value
+	 * @throws JsonParseException If the string is not valid JSON
+	 */
+	public Map<String,JsonElement> parseValues(String s) throws JsonParseException
+	{
+		return getValues(parse(s));
+	}
+
+	/**
+	 * Evaluates each of the paths on an element
+	 * @param e The element, typically obtained from one of the
+	 *   <tt>parse</tt> methods
+	 * @return A map from each path present in the element to its value
+	 */
+	public Map<String,JsonElement> getValues(JsonElement e)
+	{
+		Map<String,JsonElement> values = new LinkedHashMap<String,JsonElement>();
+		if (e == null)
+		{
+			return values;
+		}
+		for (String path : m_paths)
+		{
+			JsonElement v = JsonPath.get(e, path);
+			if (v != null)
+			{
+				values.put(path, v);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Parses a complete document from a reader. The reader is released
+	 * afterwards, so that the reader of the thread does not keep the
+	 * document.
+	 * @param r The reader, positioned at the beginning of the document
+	 * @return The sparse element
+	 * @throws JsonParseException If the input is not valid JSON
+	 */
+	protected JsonElement parse(JsonReader r) throws JsonParseException
+	{
+		try
+		{
+			r.next();
+			JsonElement e = project(r, m_root);
+			if (r.next() != JsonReader.END_DOCUMENT)
+			{
+				throw new JsonParseException("Unexpected content after the end of the document");
+			}
+			return e;
+		}
+		catch (IOException e)
+		{
+			// Cannot happen when reading from memory
+			throw new JsonParseException(e.toString());
+		}
+		finally
+		{
+			r.release();
+		}
+	}
+
+	/**
+	 * Reads the value starting at the current event of a reader, keeping
+	 * only the parts that lead to a path
+	 * @param r The reader
+	 * @param n The node of the path tree corresponding to the value
+	 * @return The sparse value, or null if no path goes through this
+	 *   value
+	 * @throws IOException If reading the input fails
+	 * @throws JsonParseException If the input is not valid JSON
+	 */
+	protected static JsonElement project(JsonReader r, Node n) throws IOException, JsonParseException
+	{
+		if (n.m_terminal)
+		{
+			return r.readElement();
+		}
+		int event = r.getEvent();
+		if (event == JsonReader.START_OBJECT && n.m_keys != null)
+		{
+			JsonMap map = null;
+			while (r.next() == JsonReader.KEY)
+			{
+				String key = r.getKey();
+				Node child = n.m_keys.get(key);
+				if (child == null)
+				{
+					r.skipValue();
+					continue;
+				}
+				r.next();
+				JsonElement e = project(r, child);
+				if (e != null)
+				{
+					if (map == null)
+					{
+						map = new JsonMap();
+					}
+					map.put(key, e);
+				}
+			}
+			return map;
+		}
+		if (event == JsonReader.START_ARRAY && n.m_indices != null)
+		{
+			JsonList list = null;
+			int index = 0;
+			while (r.next() != JsonReader.END_ARRAY)
+			{
+				Node child = index <= n.m_maxIndex ? n.m_indices.get(index) : null;
+				if (child == null)
+				{
+					r.skipValue();
+					index++;
+					continue;
+				}
+				JsonElement e = project(r, child);
+				if (e != null)
+				{
+					if (list == null)
+					{
+						list = new JsonList(index + 1);
+					}
+					while (list.size() < index)
+					{
+						list.add(JsonNull.instance);
+					}
+					list.add(e);
+				}
+				index++;
+			}
+			return list;
+		}
+		r.skipValue();
+		return null;
+	}
+
+	/**
+	 * A node in the tree formed by the steps of all the paths
+	 */
+	protected static class Node
+	{
+		/**
+		 * Whether a path ends at this node
+		 */
+		protected boolean m_terminal;
+
+		/**
+		 * The children reached through a key, if any
+		 */
+		protected Map<String,Node> m_keys;
+
+		/**
+		 * The children reached through an index, if any
+		 */
+		protected Map<Integer,Node> m_indices;
+
+		/**
+		 * The largest index leading to a child
+		 */
+		protected int m_maxIndex = -1;
+
+		/**
+		 * Gets the child of this node reached through a path step,
+		 * creating it if necessary
+		 * @param pe The path step
+		 * @return The child
+		 */
+		protected Node getChild(PathElement pe)
+		{
+			Node child;
+			if (pe instanceof KeyPathElement)
+			{
+				String key = ((KeyPathElement) pe).m_key;
+				if (m_keys == null)
+				{
+					m_keys = new HashMap<String,Node>();
+				}
+				child = m_keys.get(key);
+				if (child == null)
+				{
+					child = new Node();
+					m_keys.put(key, child);
+				}
+			}
+			else
+			{
+				int index = ((CardinalityPathElement) pe).m_card;
+				if (m_indices == null)
+				{
+					m_indices = new HashMap<Integer,Node>();
+				}
+				child = m_indices.get(index);
+				if (child == null)
+				{
+					child = new Node();
+					m_indices.put(index, child);
+					m_maxIndex = Math.max(m_maxIndex, index);
+				}
+			}
+			return child;
+		}
+	}
+}
@@ -0,0 +1,839 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.json.simple.parser.Yylex;
+import org.json.simple.parser.Yytoken;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * Pull parser for JSON text. Instead of building a tree or calling
+ * back a handler, the reader returns the structure of the document
+ * one event at a time, each time {@link #next()} is called:
+ * <pre>
+ * JsonReader r = new JsonReader("{\"a\" : [1, 2], \"b\" : \"c\"}");
+ * int event;
+ * while ((event = r.next()) != JsonReader.END_DOCUMENT)
+ * {
+ *   if (event == JsonReader.KEY &amp;&amp; !r.getKey().equals("b"))
+ *   {
+ *     r.skipValue();
+ *   }
+ *   ...
+ * }
+ * </pre>
+ * Subtrees that are not needed can be passed over with
+ * {@link #skipValue()}, which scans the input for the end of the value
+ * without turning its contents into tokens or elements.
+ * <p>
+ * The reader checks the commas and colons between the events it
+ * returns, and rejects input such as <tt>{"a" 1}</tt>, <tt>[1 2]</tt> or
+ * <tt>[1,]</tt>. It is therefore stricter than
+ * {@link JsonParser#parse(String)}, which, like json-simple, ignores
+ * missing and extra commas and colons. The contents of a value passed
+ * over with {@link #skipValue()} are not checked.
+ * <p>
+ * A reader is not thread-safe. It can be reused for another input by
+ * calling one of the <tt>reset</tt> methods.
+ */
+public class JsonReader
+{
+	/**
+	 * Event: the beginning of an object
+	 */
+	public static final int START_OBJECT = 1;
+
+	/**
+	 * Event: the end of an object
+	 */
+	public static final int END_OBJECT = 2;
+
+	/**
+	 * Event: the beginning of an array
+	 */
+	public static final int START_ARRAY = 3;
+
+	/**
+	 * Event: the key of an object entry
+	 */
+	public static final int KEY = 4;
+
+	/**
+	 * Event: a string, number, Boolean or null value
+	 */
+	public static final int VALUE = 5;
+
+	/**
+	 * Event: the end of an array
+	 */
+	public static final int END_ARRAY = 6;
+
+	/**
+	 * Event: the end of the input
+	 */
+	public static final int END_DOCUMENT = 7;
+
+	/**
+	 * Marker for an open object in the container stack
+	 */
+	protected static final byte IN_OBJECT = 0;
+
+	/**
+	 * Marker for an open array in the container stack
+	 */
+	protected static final byte IN_ARRAY = 1;
+
+	/**
+	 * State of a container that has just been opened: the next token is
+	 * its first element, or the end of the container
+	 */
+	protected static final byte EXPECT_FIRST = 0;
+
+	/**
+	 * State of a container after one of its elements: the next token is a
+	 * comma or the end of the container
+	 */
+	protected static final byte EXPECT_COMMA = 1;
+
+	/**
+	 * State of a container after a comma: the next token is an element
+	 */
+	protected static final byte EXPECT_ITEM = 2;
+
+	/**
+	 * State of an object after a key: the next token is a colon
+	 */
+	protected static final byte EXPECT_COLON = 3;
+
+	/**
+	 * State of an object after a colon: the next token is a value
+	 */
+	protected static final byte EXPECT_VALUE = 4;
+
+	/**
+	 * The lexer producing the tokens
+	 */
+	protected Yylex m_lexer;
+
+	/**
+	 * The containers that are currently open
+	 */
+	protected byte[] m_stack;
+
+	/**
+	 * The number of containers that are currently open
+	 */
+	protected int m_depth;
+
+	/**
+	 * Whether the top-level value has been read
+	 */
+	protected boolean m_finished;
+
+	/**
+	 * What the next token of the innermost container must be; one of the
+	 * <tt>EXPECT_</tt> constants
+	 */
+	protected byte m_expect;
+
+	/**
+	 * The last event returned by {@link #next()}, or 0 if no event has
+	 * been read yet
+	 */
+	protected int m_event;
+
+	/**
+	 * The key of the current event, or its value if it is a string
+	 */
+	protected Object m_value;
+
+	/**
+	 * The kind of value of the current {@link #VALUE} event, one of the
+	 * <tt>VALUE_</tt> constants of {@link Yytoken}
+	 */
+	protected int m_valueKind;
+
+	/**
+	 * The value of the current event, if it is an integer
+	 */
+	protected long m_long;
+
+	/**
+	 * The value of the current event, if it is a decimal number
+	 */
+	protected double m_double;
+
+	/**
+	 * The value of the current event, if it is a Boolean
+	 */
+	protected boolean m_boolean;
+
+	/**
+	 * Whether the maps built by {@link #readElement()} keep their keys in
+	 * document order
+	 */
+	protected boolean m_orderedMaps = false;
+
+	/**
+	 * The maximum nesting depth of objects and arrays
+	 */
+	protected int m_maxDepth = JSONParser.DEFAULT_MAX_DEPTH;
+
+	/**
+	 * The number of containers enclosing the input, when it starts in the
+	 * middle of a document; they count towards the maximum depth
+	 */
+	protected int m_baseDepth = 0;
+
+	/**
+	 * Creates a reader for a string
+	 * @param s The string
+	 */
+	public JsonReader(String s)
+	{
+		this(new StringReader(s));
+	}
+
+	/**
+	 * Creates a reader for a stream of characters
+	 * @param in The reader to read from
+	 */
+	public JsonReader(Reader in)
+	{
+		super();
+		m_lexer = new Yylex(in);
+		m_stack = new byte[16];
+	}
+
+	/**
+	 * Creates a reader for UTF-8 encoded bytes. The bytes read are those
+	 * between the position and the limit of the buffer; the position of
+	 * the buffer is left unchanged.
+	 * @param bytes The bytes
+	 */
+	public JsonReader(ByteBuffer bytes)
+	{
+		this((Reader) null);
+		m_lexer.yyreset(bytes.duplicate());
+	}
+
+	/**
+	 * Creates a reader for UTF-8 encoded bytes
+	 * @param bytes The bytes
+	 */
+	public JsonReader(byte[] bytes)
+	{
+		this(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Starts reading a new string
+	 * @param s The string
+	 */
+	public void reset(String s)
+	{
+		reset(new StringReader(s));
+	}
+
+	/**
+	 * Starts reading from a new stream of characters
+	 * @param in The reader to read from
+	 */
+	public void reset(Reader in)
+	{
+		m_lexer.yyreset(in);
+		resetState();
+	}
+
+	/**
+	 * Starts reading new UTF-8 encoded bytes
+	 * @param bytes The bytes
+	 */
+	public void reset(ByteBuffer bytes)
+	{
+		m_lexer.yyreset(bytes.duplicate());
+		resetState();
+	}
+
+	/**
+	 * Drops the input of this reader, so that a reader kept between
+	 * documents does not hold on to it, and shrinks the buffers of the
+	 * lexer that grew while reading long tokens. The reader must be reset
+	 * with a new input before it is used again.
+	 */
+	public void release()
+	{
+		m_lexer.yyrelease();
+		resetState();
+	}
+
+	/**
+	 * Puts the reader back at the beginning of a document
+	 */
+	protected void resetState()
+	{
+		m_depth = 0;
+		m_baseDepth = 0;
+		m_finished = false;
+		m_expect = EXPECT_FIRST;
+		m_event = 0;
+		m_value = null;
+	}
+
+	/**
+	 * Reads the next event
+	 * @return The event, one of the constants defined in this class
+	 * @throws IOException If reading the input fails
+	 * @throws JsonParseException If the input is not valid JSON
+	 */
+	public int next() throws IOException, JsonParseException
+	{
+		m_value = null;
+		while (true)
+		{
+			int type = nextToken();
+			if (m_finished)
+			{
+				if (type == Yytoken.TYPE_EOF)
+				{
+					return m_event = END_DOCUMENT;
+				}
+				throw unexpected(type);
+			}
+			if (m_depth == 0)
+			{
+				// Top-level value
+				return m_event = startValue(type);
+			}
+			if (m_stack[m_depth - 1] == IN_OBJECT)
+			{
+				switch (m_expect)
+				{
+				case EXPECT_COLON:
+					if (type != Yytoken.TYPE_COLON)
+					{
+						throw unexpected(type);
+					}
+					m_expect = EXPECT_VALUE;
+					continue;
+				case EXPECT_VALUE:
+					m_expect = EXPECT_COMMA;
+					return m_event = startValue(type);
+				case EXPECT_COMMA:
+					if (type == Yytoken.TYPE_COMMA)
+					{
+						m_expect = EXPECT_ITEM;
+						continue;
+					}
+					break;
+				default:
+					if (type == Yytoken.TYPE_VALUE && m_lexer.yyvaluekind() == Yytoken.VALUE_STRING)
+					{
+						m_expect = EXPECT_COLON;
+						m_value = m_lexer.yystring();
+						return m_event = KEY;
+					}
+					break;
+				}
+				if (type == Yytoken.TYPE_RIGHT_BRACE && m_expect != EXPECT_ITEM)
+				{
+					endContainer();
+					return m_event = END_OBJECT;
+				}
+				throw unexpected(type);
+			}
+			// In an array
+			if (m_expect == EXPECT_COMMA)
+			{
+				if (type == Yytoken.TYPE_COMMA)
+				{
+					m_expect = EXPECT_ITEM;
+					continue;
+				}
+			}
+			else if (type != Yytoken.TYPE_RIGHT_SQUARE || m_expect == EXPECT_ITEM)
+			{
+				m_expect = EXPECT_COMMA;
+				return m_event = startValue(type);
+			}
+			if (type == Yytoken.TYPE_RIGHT_SQUARE)
+			{
+				endContainer();
+				return m_event = END_ARRAY;
+			}
+			throw unexpected(type);
+		}
+	}
+
+	/**
+	 * Sets whether object keys are interned. The setting applies until it
+	 * is changed, including after a reset.
+	 * @param intern true to intern keys
+	 * @see JsonParser#setInternKeys(boolean)
+	 */
+	public void setInternKeys(boolean intern)
+	{
+		m_lexer.yyinternKeys(intern);
+	}
+
+	/**
+	 * Sets whether the maps built by {@link #readElement()} keep their
+	 * keys in the order in which they appear in the document
+	 * @param ordered true to preserve the order of keys
+	 * @see JsonParser#setOrderedMaps(boolean)
+	 */
+	public void setOrderedMaps(boolean ordered)
+	{
+		m_orderedMaps = ordered;
+	}
+
+	/**
+	 * Sets the maximum nesting depth of objects and arrays. Opening a
+	 * container beyond this depth makes {@link #next()} throw an
+	 * exception.
+	 * @param max The maximum depth, which must be at least 1
+	 * @see JsonParser#setMaxDepth(int)
+	 */
+	public void setMaxDepth(int max)
+	{
+		if (max < 1)
+		{
+			throw new IllegalArgumentException("Maximum depth must be at least 1");
+		}
+		m_maxDepth = max;
+	}
+
+	/**
+	 * Sets the number of containers enclosing the input, when it starts in
+	 * the middle of a document. They count towards the maximum depth. The
+	 * <tt>reset</tt> methods set this number back to 0.
+	 * @param depth The number of containers
+	 */
+	protected void setBaseDepth(int depth)
+	{
+		m_baseDepth = depth;
+	}
+
+	/**
+	 * Gets the last event returned by {@link #next()}
+	 * @return The event, or 0 if no event has been read yet
+	 */
+	public int getEvent()
+	{
+		return m_event;
+	}
+
+	/**
+	 * Gets the number of objects and arrays that are currently open.
+	 * After a {@link #START_OBJECT} or {@link #START_ARRAY} event, this
+	 * includes the container that has just been opened.
+	 * @return The depth
+	 */
+	public int getDepth()
+	{
+		return m_depth;
+	}
+
+	/**
+	 * Gets the position in the input of the last token read
+	 * @return The position, in characters
+	 */
+	public long getPosition()
+	{
+		return m_lexer.getPosition();
+	}
+
+	/**
+	 * Gets the key of the current {@link #KEY} event
+	 * @return The key, or null if the current event is not a key
+	 */
+	public String getKey()
+	{
+		if (m_event != KEY)
+		{
+			return null;
+		}
+		return (String) m_value;
+	}
+
+	/**
+	 * Determines if the current event is a string value
+	 * @return true if the current event is a string value
+	 */
+	public boolean isString()
+	{
+		return m_event == VALUE && m_valueKind == Yytoken.VALUE_STRING;
+	}
+
+	/**
+	 * Determines if the current event is a numeric value
+	 * @return true if the current event is a numeric value
+	 */
+	public boolean isNumber()
+	{
+		return m_event == VALUE && (m_valueKind == Yytoken.VALUE_LONG || m_valueKind == Yytoken.VALUE_DOUBLE);
+	}
+
+	/**
+	 * Determines if the current event is a Boolean value
+	 * @return true if the current event is a Boolean value
+	 */
+	public boolean isBoolean()
+	{
+		return m_event == VALUE && m_valueKind == Yytoken.VALUE_BOOLEAN;
+	}
+
+	/**
+	 * Determines if the current event is the null value
+	 * @return true if the current event is the null value
+	 */
+	public boolean isNull()
+	{
+		return m_event == VALUE && m_valueKind == Yytoken.VALUE_NULL;
+	}
+
+	/**
+	 * Gets the current string value
+	 * @return The string
+	 * @throws IllegalStateException If the current event is not a string
+	 *   value
+	 */
+	public String getString()
+	{
+		if (!isString())
+		{
+			throw new IllegalStateException("Current event is not a string");
+		}
+		return (String) m_value;
+	}
+
+	/**
+	 * Gets the current numeric value
+	 * @return The number, which is a <tt>Long</tt> or a <tt>Double</tt>
+	 * @throws IllegalStateException If the current event is not a
+	 *   numeric value
+	 */
+	public Number getNumber()
+	{
+		checkNumber();
+		if (m_valueKind == Yytoken.VALUE_LONG)
+		{
+			return Long.valueOf(m_long);
+		}
+		return Double.valueOf(m_double);
+	}
+
+	/**
+	 * Gets the current numeric value as a long. Unlike
+	 * {@link #getNumber()}, this method creates no object.
+	 * @return The number
+	 * @throws IllegalStateException If the current event is not a
+	 *   numeric value
+	 */
+	public long getLong()
+	{
+		checkNumber();
+		return m_valueKind == Yytoken.VALUE_LONG ? m_long : (long) m_double;
+	}
+
+	/**
+	 * Gets the current numeric value as a double. Unlike
+	 * {@link #getNumber()}, this method creates no object.
+	 * @return The number
+	 * @throws IllegalStateException If the current event is not a
+	 *   numeric value
+	 */
+	public double getDouble()
+	{
+		checkNumber();
+		return m_valueKind == Yytoken.VALUE_LONG ? m_long : m_double;
+	}
+
+	/**
+	 * Throws an exception if the current event is not a numeric value
+	 */
+	protected void checkNumber()
+	{
+		if (!isNumber())
+		{
+			throw new IllegalStateException("Current event is not a number");
+		}
+	}
+
+	/**
+	 * Gets the current Boolean value
+	 * @return The value
+	 * @throws IllegalStateException If the current event is not a
+	 *   Boolean value
+	 */
+	public boolean getBoolean()
+	{
+		if (!isBoolean())
+		{
+			throw new IllegalStateException("Current event is not a Boolean");
+		}
+		return m_boolean;
+	}
+
+	/**
+	 * Skips the value that starts at the current event. If the current
+	 * event is a {@link #KEY}, the value of that entry is skipped. If it
+	 * is {@link #START_OBJECT} or {@link #START_ARRAY}, the input is
+	 * scanned up to the end of the container without producing any
+	 * token or element; the current event then becomes the
+	 * corresponding {@link #END_OBJECT} or {@link #END_ARRAY}. For any
+	 * other event, this method does nothing.
+	 * <p>
+	 * The contents of a skipped container are not validated.
+	 * @throws IOException If reading the input fails
+	 * @throws JsonParseException If the input is not valid JSON
+	 */
+	public void skipValue() throws IOException, JsonParseException
+	{
+		if (m_event == KEY)
+		{
+			next();
+		}
+		if (m_event != START_OBJECT && m_event != START_ARRAY)
+		{
+			return;
+		}
+		try
+		{
+			m_lexer.yyskipContainer();
+		}
+		catch (ParseException e)
+		{
+			throw new JsonParseException(e.toString());
+		}
+		m_value = null;
+		m_event = m_event == START_OBJECT ? END_OBJECT : END_ARRAY;
+		endContainer();
+	}
+
+	/**
+	 * Reads the value that starts at the current event as a JSON
+	 * element. If the current event is a {@link #KEY}, the value of that
+	 * entry is read. If it is {@link #START_OBJECT} or
+	 * {@link #START_ARRAY}, the whole container is read, and the current
+	 * event becomes the corresponding {@link #END_OBJECT} or
+	 * {@link #END_ARRAY}.
+	 * @return The element, or null if the current event is not the
+	 *   beginning of a value
+	 * @throws IOException If reading the input fails
+	 * @throws JsonParseException If the input is not valid JSON
+	 */
+	public JsonElement readElement() throws IOException, JsonParseException
+	{
+		if (m_event == KEY)
+		{
+			next();
+		}
+		if (m_event == VALUE)
+		{
+			return getValueElement();
+		}
+		if (m_event != START_OBJECT && m_event != START_ARRAY)
+		{
+			return null;
+		}
+		JsonElementBuilder builder = new JsonElementBuilder(m_orderedMaps);
+		builder.startJSON();
+		int depth = m_depth - 1;
+		do
+		{
+			switch (m_event)
+			{
+			case START_OBJECT:
+				builder.startObject();
+				break;
+			case END_OBJECT:
+				builder.endObject();
+				break;
+			case START_ARRAY:
+				builder.startArray();
+				break;
+			case END_ARRAY:
+				builder.endArray();
+				break;
+			case KEY:
+				builder.startObjectEntry((String) m_value);
+				break;
+			case VALUE:
+				builder.attach(getValueElement());
+				break;
+			default:
+				break;
+			}
+		} while (m_depth > depth && next() != END_DOCUMENT);
+		return builder.getElement();
+	}
+
+	/**
+	 * Creates the element for the current {@link #VALUE} event
+	 * @return The element
+	 */
+	protected JsonElement getValueElement()
+	{
+		switch (m_valueKind)
+		{
+		case Yytoken.VALUE_STRING:
+			return new JsonString((String) m_value);
+		case Yytoken.VALUE_LONG:
+			return JsonParser.wrap(m_long);
+		case Yytoken.VALUE_DOUBLE:
+			return new JsonNumber(m_double);
+		case Yytoken.VALUE_BOOLEAN:
+			return m_boolean ? JsonTrue.instance : JsonFalse.instance;
+		default:
+			return JsonNull.instance;
+		}
+	}
+
+	/**
+	 * Handles the token that starts a value
+	 * @param type The type of the token
+	 * @return The corresponding event
+	 * @throws JsonParseException If the token cannot start a value
+	 */
+	protected int startValue(int type) throws JsonParseException
+	{
+		switch (type)
+		{
+		case Yytoken.TYPE_VALUE:
+			// The value is copied, since the lexer moves on to the next token
+			m_valueKind = m_lexer.yyvaluekind();
+			switch (m_valueKind)
+			{
+			case Yytoken.VALUE_STRING:
+				m_value = m_lexer.yystring();
+				break;
+			case Yytoken.VALUE_LONG:
+				m_long = m_lexer.yylong();
+				break;
+			case Yytoken.VALUE_DOUBLE:
+				m_double = m_lexer.yydouble();
+				break;
+			case Yytoken.VALUE_BOOLEAN:
+				m_boolean = m_lexer.yyboolean();
+				break;
+			default:
+				break;
+			}
+			if (m_depth == 0)
+			{
+				m_finished = true;
+			}
+			return VALUE;
+		case Yytoken.TYPE_LEFT_BRACE:
+			checkDepth();
+			push(IN_OBJECT);
+			return START_OBJECT;
+		case Yytoken.TYPE_LEFT_SQUARE:
+			checkDepth();
+			push(IN_ARRAY);
+			return START_ARRAY;
+		default:
+			throw unexpected(type);
+		}
+	}
+
+	/**
+	 * Throws an exception if no container can be opened without
+	 * exceeding the maximum depth
+	 * @throws JsonParseException If the maximum depth is reached
+	 */
+	protected void checkDepth() throws JsonParseException
+	{
+		if (m_baseDepth + m_depth >= m_maxDepth)
+		{
+			throw new JsonParseException(new ParseException(m_lexer.getPosition(), ParseException.ERROR_MAX_DEPTH, Integer.valueOf(m_maxDepth)).toString());
+		}
+	}
+
+	/**
+	 * Opens a container
+	 * @param type The type of container
+	 */
+	protected void push(byte type)
+	{
+		if (m_depth == m_stack.length)
+		{
+			m_stack = Arrays.copyOf(m_stack, m_depth * 2);
+		}
+		m_stack[m_depth++] = type;
+		m_expect = EXPECT_FIRST;
+	}
+
+	/**
+	 * Closes the innermost container
+	 */
+	protected void endContainer()
+	{
+		m_depth--;
+		m_expect = EXPECT_COMMA;
+		if (m_depth == 0)
+		{
+			m_finished = true;
+		}
+	}
+
+	/**
+	 * Reads the next token from the lexer. No object is created for the
+	 * token; its value, if any, is available from the lexer until the
+	 * following token is read.
+	 * @return The type of the token, one of the <tt>TYPE_</tt> constants
+	 *   of {@link Yytoken}
+	 * @throws IOException If reading the input fails
+	 * @throws JsonParseException If the lexer finds an invalid character
+	 */
+	protected int nextToken() throws IOException, JsonParseException
+	{
+		m_lexer.yykey(m_depth > 0 && m_stack[m_depth - 1] == IN_OBJECT
+				&& (m_expect == EXPECT_FIRST || m_expect == EXPECT_ITEM));
+		try
+		{
+			return m_lexer.yynext();
+		}
+		catch (ParseException e)
+		{
+			throw new JsonParseException(e.toString());
+		}
+	}
+
+	/**
+	 * Creates the exception thrown when a token is not expected
+	 * @param type The type of the token, which is the current token of
+	 *   the lexer
+	 * @return The exception
+	 */
+	protected JsonParseException unexpected(int type)
+	{
+		Yytoken token = new Yytoken(type, m_lexer.yyvalue());
+		return new JsonParseException(new ParseException(m_lexer.getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token).toString());
+	}
+}
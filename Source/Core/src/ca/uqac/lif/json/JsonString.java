@@ -17,6 +17,8 @@
  */
 package ca.uqac.lif.json;
 
+import java.io.IOException;
+
 import org.json.simple.JSONValue;
 
 /**
@@ -60,9 +62,15 @@ public class JsonString extends JsonElement
 	@Override
 	public String toString(String indent, boolean compact)
 	{
-		StringBuilder out = new StringBuilder();
-		out.append("\"").append(JSONValue.escape(m_string)).append("\"");
-		return out.toString();
+		return writeToString(indent, compact);
+	}
+
+	@Override
+	protected void write(Appendable out, String indent, boolean compact) throws IOException
+	{
+		out.append('"');
+		JSONValue.escape(m_string, out);
+		out.append('"');
 	}
 	
 	@Override
@@ -82,7 +90,7 @@ public class JsonString extends JsonElement
 		{
 			return true;
 		}
-		return m_string.compareTo(((JsonString) o).m_string) == 0;
+		return m_string.equals(((JsonString) o).m_string);
 	}
 
 	@Override
@@ -106,6 +114,6 @@ public class JsonString extends JsonElement
 
 	@Override
 	public JsonString clone() {
-		return new JsonString(new String(m_string));
+		return new JsonString(m_string);
 	}
 }
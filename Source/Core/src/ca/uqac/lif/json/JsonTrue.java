@@ -76,7 +76,7 @@ public final class JsonTrue extends JsonBoolean
 
 	@Override
 	public JsonTrue clone() {
-		return new JsonTrue();
+		return instance;
 	}
 
 }
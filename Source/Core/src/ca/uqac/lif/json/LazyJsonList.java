@@ -0,0 +1,365 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * A {@link JsonList} whose contents are parsed from the source text only
+ * when they are first accessed. This is the counterpart of
+ * {@link LazyJsonMap} for arrays, and behaves in the same way.
+ */
+public class LazyJsonList extends JsonList
+{
+	/**
+	 * The source text, or null once the list has been materialized
+	 */
+	protected String m_source;
+
+	/**
+	 * The position in the source text where the array starts
+	 */
+	protected int m_offset;
+
+	/**
+	 * The nesting depth of the array in the document, 1 being the top level
+	 */
+	protected int m_depth;
+
+	/**
+	 * The maximum nesting depth of objects and arrays in the document
+	 */
+	protected int m_maxDepth;
+
+	/**
+	 * Creates a new empty list at the top level of a document, which is
+	 * already materialized
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 */
+	protected LazyJsonList(int max_depth)
+	{
+		super();
+		m_depth = 1;
+		m_maxDepth = max_depth;
+	}
+
+	/**
+	 * Creates a new lazy list
+	 * @param source The source text
+	 * @param offset The position in the source text where the array
+	 *   starts
+	 * @param depth The nesting depth of the array in the document
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 */
+	protected LazyJsonList(String source, int offset, int depth, int max_depth)
+	{
+		super();
+		m_source = source;
+		m_offset = offset;
+		m_depth = depth;
+		m_maxDepth = max_depth;
+	}
+
+	/**
+	 * Determines if the contents of this list have been parsed
+	 * @return true if the contents are parsed, false otherwise
+	 */
+	public boolean isMaterialized()
+	{
+		return m_source == null;
+	}
+
+	/**
+	 * Parses the contents of this list, if this has not been done already
+	 */
+	protected void materialize()
+	{
+		if (m_source == null)
+		{
+			return;
+		}
+		String source = m_source;
+		// Cleared first, so that the methods called while populating the
+		// list do not try to materialize it again
+		m_source = null;
+		JsonReader r = LazyJsonMap.openReader(source, m_offset, m_depth - 1, m_maxDepth);
+		boolean done = false;
+		try
+		{
+			r.next();
+			populate(r, source, m_offset);
+			done = true;
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e.toString(), e);
+		}
+		catch (JsonParseException e)
+		{
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		finally
+		{
+			r.release();
+			if (!done)
+			{
+				// The entries read before the error are discarded, so that
+				// every later access reports the error again instead of
+				// seeing a truncated list
+				m_list.clear();
+				m_source = source;
+			}
+		}
+	}
+
+	/**
+	 * Reads the elements of an array into this list
+	 * @param r The reader, whose current event is the start of the array
+	 * @param source The source text
+	 * @param base The position in the source text of the first character
+	 *   read by the reader
+	 * @throws IOException If reading fails
+	 * @throws JsonParseException If the array is not valid JSON
+	 */
+	protected void populate(JsonReader r, String source, int base) throws IOException, JsonParseException
+	{
+		if (r.getEvent() != JsonReader.START_ARRAY)
+		{
+			throw new JsonParseException("Expected an array at position " + (base + r.getPosition()));
+		}
+		while (r.next() != JsonReader.END_ARRAY)
+		{
+			super.add(LazyJsonMap.readValue(r, source, base, m_depth + 1, m_maxDepth));
+		}
+	}
+
+	@Override
+	protected void write(Appendable out, String indent, boolean compact) throws IOException
+	{
+		materialize();
+		super.write(out, indent, compact);
+	}
+
+	@Override
+	public JsonList freeze()
+	{
+		materialize();
+		return super.freeze();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		materialize();
+		return super.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		materialize();
+		return super.equals(o);
+	}
+
+	@Override
+	protected void writeCanonical(Appendable out) throws IOException
+	{
+		materialize();
+		super.writeCanonical(out);
+	}
+
+	@Override
+	public boolean add(JsonElement e)
+	{
+		materialize();
+		return super.add(e);
+	}
+
+	@Override
+	public void add(int index, JsonElement element)
+	{
+		materialize();
+		super.add(index, element);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends JsonElement> c)
+	{
+		materialize();
+		return super.addAll(c);
+	}
+
+	@Override
+	public boolean addAll(int index, Collection<? extends JsonElement> c)
+	{
+		materialize();
+		return super.addAll(index, c);
+	}
+
+	@Override
+	public void clear()
+	{
+		materialize();
+		super.clear();
+	}
+
+	@Override
+	public boolean contains(Object o)
+	{
+		materialize();
+		return super.contains(o);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c)
+	{
+		materialize();
+		return super.containsAll(c);
+	}
+
+	@Override
+	public JsonElement get(int index)
+	{
+		materialize();
+		return super.get(index);
+	}
+
+	@Override
+	public int indexOf(Object o)
+	{
+		materialize();
+		return super.indexOf(o);
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		materialize();
+		return super.isEmpty();
+	}
+
+	@Override
+	public Iterator<JsonElement> iterator()
+	{
+		materialize();
+		return super.iterator();
+	}
+
+	@Override
+	public int lastIndexOf(Object o)
+	{
+		materialize();
+		return super.lastIndexOf(o);
+	}
+
+	@Override
+	public ListIterator<JsonElement> listIterator()
+	{
+		materialize();
+		return super.listIterator();
+	}
+
+	@Override
+	public ListIterator<JsonElement> listIterator(int index)
+	{
+		materialize();
+		return super.listIterator(index);
+	}
+
+	@Override
+	public boolean remove(Object o)
+	{
+		materialize();
+		return super.remove(o);
+	}
+
+	@Override
+	public JsonElement remove(int index)
+	{
+		materialize();
+		return super.remove(index);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c)
+	{
+		materialize();
+		return super.removeAll(c);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c)
+	{
+		materialize();
+		return super.retainAll(c);
+	}
+
+	@Override
+	public JsonElement set(int index, JsonElement element)
+	{
+		materialize();
+		return super.set(index, element);
+	}
+
+	@Override
+	public int size()
+	{
+		materialize();
+		return super.size();
+	}
+
+	@Override
+	public List<JsonElement> subList(int fromIndex, int toIndex)
+	{
+		materialize();
+		return super.subList(fromIndex, toIndex);
+	}
+
+	@Override
+	public Object[] toArray()
+	{
+		materialize();
+		return super.toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] a)
+	{
+		materialize();
+		return super.toArray(a);
+	}
+
+	@Override
+	public JsonList clone()
+	{
+		if (m_source != null)
+		{
+			// The copy can simply be parsed from the same source
+			return new LazyJsonList(m_source, m_offset, m_depth, m_maxDepth);
+		}
+		return super.clone();
+	}
+}
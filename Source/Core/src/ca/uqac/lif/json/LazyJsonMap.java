@@ -0,0 +1,385 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * A {@link JsonMap} whose contents are parsed from the source text only
+ * when they are first accessed. Until then, the map only holds the
+ * source string and the position where the object starts.
+ * <p>
+ * Materializing the map parses a single level: its scalar values are
+ * built, while the objects and arrays it contains are passed over with
+ * {@link JsonReader#skipValue()} and become lazy containers themselves.
+ * Accessing a value deep in a document therefore only parses the
+ * containers along the way.
+ * <p>
+ * Since the nested containers are not validated until they are
+ * materialized, a syntax error in one of them is only detected at that
+ * moment, and is signalled by an {@link IllegalStateException}.
+ * <p>
+ * Lazy maps keep their keys in the order in which they appear in the
+ * source text, and are obtained with {@link JsonParser#parseLazy(String)}.
+ * Like {@link JsonMap}, they are not thread-safe, even for reading.
+ */
+public class LazyJsonMap extends JsonMap
+{
+	/**
+	 * The reader used by each thread to materialize containers
+	 */
+	private static final transient ThreadLocal<JsonReader> s_readers = new ThreadLocal<JsonReader>()
+	{
+		@Override
+		protected JsonReader initialValue()
+		{
+			return new JsonReader((Reader) null);
+		}
+	};
+
+	/**
+	 * The source text, or null once the map has been materialized
+	 */
+	protected String m_source;
+
+	/**
+	 * The position in the source text where the object starts
+	 */
+	protected int m_offset;
+
+	/**
+	 * The nesting depth of the object in the document, 1 being the top level
+	 */
+	protected int m_depth;
+
+	/**
+	 * The maximum nesting depth of objects and arrays in the document
+	 */
+	protected int m_maxDepth;
+
+	/**
+	 * Creates a new empty map at the top level of a document, which is
+	 * already materialized
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 */
+	protected LazyJsonMap(int max_depth)
+	{
+		super(true);
+		m_depth = 1;
+		m_maxDepth = max_depth;
+	}
+
+	/**
+	 * Creates a new lazy map
+	 * @param source The source text
+	 * @param offset The position in the source text where the object
+	 *   starts
+	 * @param depth The nesting depth of the object in the document
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 */
+	protected LazyJsonMap(String source, int offset, int depth, int max_depth)
+	{
+		super(true);
+		m_source = source;
+		m_offset = offset;
+		m_depth = depth;
+		m_maxDepth = max_depth;
+	}
+
+	/**
+	 * Determines if the contents of this map have been parsed
+	 * @return true if the contents are parsed, false otherwise
+	 */
+	public boolean isMaterialized()
+	{
+		return m_source == null;
+	}
+
+	/**
+	 * Parses the contents of this map, if this has not been done already
+	 */
+	protected void materialize()
+	{
+		if (m_source == null)
+		{
+			return;
+		}
+		String source = m_source;
+		// Cleared first, so that the methods called while populating the
+		// map do not try to materialize it again
+		m_source = null;
+		JsonReader r = openReader(source, m_offset, m_depth - 1, m_maxDepth);
+		boolean done = false;
+		try
+		{
+			r.next();
+			populate(r, source, m_offset);
+			done = true;
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e.toString(), e);
+		}
+		catch (JsonParseException e)
+		{
+			throw new IllegalStateException(e.getMessage(), e);
+		}
+		finally
+		{
+			r.release();
+			if (!done)
+			{
+				// The entries read before the error are discarded, so that
+				// every later access reports the error again instead of
+				// seeing a truncated map
+				m_map.clear();
+				m_source = source;
+			}
+		}
+	}
+
+	/**
+	 * Reads the entries of an object into this map
+	 * @param r The reader, whose current event is the start of the object
+	 * @param source The source text
+	 * @param base The position in the source text of the first character
+	 *   read by the reader
+	 * @throws IOException If reading fails
+	 * @throws JsonParseException If the object is not valid JSON
+	 */
+	protected void populate(JsonReader r, String source, int base) throws IOException, JsonParseException
+	{
+		if (r.getEvent() != JsonReader.START_OBJECT)
+		{
+			throw new JsonParseException("Expected an object at position " + (base + r.getPosition()));
+		}
+		while (r.next() == JsonReader.KEY)
+		{
+			String key = r.getKey();
+			r.next();
+			super.put(key, readValue(r, source, base, m_depth + 1, m_maxDepth));
+		}
+	}
+
+	/**
+	 * Reads the value starting at the current event of a reader. Objects
+	 * and arrays are skipped and returned as lazy containers; other
+	 * values are returned as is.
+	 * @param r The reader
+	 * @param source The source text
+	 * @param base The position in the source text of the first character
+	 *   read by the reader
+	 * @param depth The nesting depth of the value in the document
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 * @return The value
+	 * @throws IOException If reading fails
+	 * @throws JsonParseException If the value is not valid JSON
+	 */
+	protected static JsonElement readValue(JsonReader r, String source, int base, int depth, int max_depth) throws IOException, JsonParseException
+	{
+		switch (r.getEvent())
+		{
+		case JsonReader.START_OBJECT:
+		{
+			// Positions in a string fit in an int
+			int position = base + (int) r.getPosition();
+			r.skipValue();
+			return new LazyJsonMap(source, position, depth, max_depth);
+		}
+		case JsonReader.START_ARRAY:
+		{
+			// Positions in a string fit in an int
+			int position = base + (int) r.getPosition();
+			r.skipValue();
+			return new LazyJsonList(source, position, depth, max_depth);
+		}
+		default:
+			return r.readElement();
+		}
+	}
+
+	/**
+	 * Gets a reader positioned at some point of a source text
+	 * @param source The source text
+	 * @param offset The position to start reading from
+	 * @param base_depth The number of containers enclosing that position
+	 * @param max_depth The maximum nesting depth of objects and arrays in
+	 *   the document
+	 * @return The reader of the current thread; positions it reports are
+	 *   relative to <tt>offset</tt>. The caller releases it with
+	 *   {@link JsonReader#release()} once it is done, so that the reader
+	 *   does not keep the source text.
+	 */
+	protected static JsonReader openReader(String source, int offset, int base_depth, int max_depth)
+	{
+		StringReader in = new StringReader(source);
+		try
+		{
+			in.skip(offset);
+		}
+		catch (IOException e)
+		{
+			// Cannot happen with a StringReader
+		}
+		JsonReader r = s_readers.get();
+		r.reset(in);
+		r.setMaxDepth(max_depth);
+		r.setBaseDepth(base_depth);
+		return r;
+	}
+
+	@Override
+	protected void write(Appendable out, String indent, boolean compact) throws IOException
+	{
+		materialize();
+		super.write(out, indent, compact);
+	}
+
+	@Override
+	public JsonMap freeze()
+	{
+		materialize();
+		return super.freeze();
+	}
+
+	@Override
+	public int hashCode()
+	{
+		materialize();
+		return super.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		materialize();
+		return super.equals(o);
+	}
+
+	@Override
+	protected void writeCanonical(Appendable out) throws IOException
+	{
+		materialize();
+		super.writeCanonical(out);
+	}
+
+	@Override
+	public void clear()
+	{
+		materialize();
+		super.clear();
+	}
+
+	@Override
+	public boolean containsKey(Object arg0)
+	{
+		materialize();
+		return super.containsKey(arg0);
+	}
+
+	@Override
+	public boolean containsValue(Object arg0)
+	{
+		materialize();
+		return super.containsValue(arg0);
+	}
+
+	@Override
+	public Set<Map.Entry<String, JsonElement>> entrySet()
+	{
+		materialize();
+		return super.entrySet();
+	}
+
+	@Override
+	public JsonElement get(Object arg0)
+	{
+		materialize();
+		return super.get(arg0);
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		materialize();
+		return super.isEmpty();
+	}
+
+	@Override
+	public Set<String> keySet()
+	{
+		materialize();
+		return super.keySet();
+	}
+
+	@Override
+	public JsonElement put(String arg0, JsonElement arg1)
+	{
+		materialize();
+		return super.put(arg0, arg1);
+	}
+
+	@Override
+	public void putAll(Map<? extends String, ? extends JsonElement> arg0)
+	{
+		materialize();
+		super.putAll(arg0);
+	}
+
+	@Override
+	public JsonElement remove(Object arg0)
+	{
+		materialize();
+		return super.remove(arg0);
+	}
+
+	@Override
+	public int size()
+	{
+		materialize();
+		return super.size();
+	}
+
+	@Override
+	public Collection<JsonElement> values()
+	{
+		materialize();
+		return super.values();
+	}
+
+	@Override
+	public JsonMap clone()
+	{
+		if (m_source != null)
+		{
+			// The copy can simply be parsed from the same source
+			return new LazyJsonMap(m_source, m_offset, m_depth, m_maxDepth);
+		}
+		return super.clone();
+	}
+}
@@ -0,0 +1,158 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.json.simple.parser.Yylex;
+
+/**
+ * Supplies the contents of a file to the lexer as a sequence of
+ * memory-mapped windows. Bytes are read by the lexer straight from the
+ * mapped memory, so that the file is never copied into the heap as a
+ * whole, and files larger than 2 GB (the maximum size of a single
+ * mapping) can be read.
+ * <p>
+ * Each window except the last ends on the boundary of a UTF-8
+ * character; the next window starts at the first byte that has not
+ * been consumed. Windows are mapped one at a time, when the lexer
+ * reaches the end of the previous one; a window is unmapped when it is
+ * garbage collected.
+ */
+public class MappedFileSource implements Yylex.ByteSource
+{
+	/**
+	 * The default size of a window, in bytes
+	 */
+	public static final long DEFAULT_WINDOW_SIZE = 256L * 1024 * 1024;
+
+	/**
+	 * The channel to map
+	 */
+	protected final FileChannel m_channel;
+
+	/**
+	 * The size of a window, in bytes
+	 */
+	protected final long m_windowSize;
+
+	/**
+	 * The size of the file
+	 */
+	protected final long m_size;
+
+	/**
+	 * The position in the file of the next window
+	 */
+	protected long m_position;
+
+	/**
+	 * Creates a new source
+	 * @param channel The channel to map. It is not closed by the source.
+	 * @throws IOException If the size of the channel cannot be read
+	 */
+	public MappedFileSource(FileChannel channel) throws IOException
+	{
+		this(channel, DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates a new source
+	 * @param channel The channel to map. It is not closed by the source.
+	 * @param window_size The size of a window, in bytes. It must be
+	 *   between 4 and <tt>Integer.MAX_VALUE</tt>.
+	 * @throws IOException If the size of the channel cannot be read
+	 */
+	public MappedFileSource(FileChannel channel, long window_size) throws IOException
+	{
+		super();
+		if (window_size < 4 || window_size > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException("Invalid window size " + window_size);
+		}
+		m_channel = channel;
+		m_windowSize = window_size;
+		m_size = channel.size();
+		m_position = 0;
+	}
+
+	@Override
+	public ByteBuffer nextBytes() throws IOException
+	{
+		if (m_position >= m_size)
+		{
+			return null;
+		}
+		long length = Math.min(m_windowSize, m_size - m_position);
+		MappedByteBuffer window = m_channel.map(FileChannel.MapMode.READ_ONLY, m_position, length);
+		int limit = (int) length;
+		if (m_position + length < m_size)
+		{
+			limit = getCharacterBoundary(window, limit);
+		}
+		window.limit(limit);
+		m_position += limit;
+		return window;
+	}
+
+	/**
+	 * Finds the end of the last complete UTF-8 character in a buffer
+	 * @param buffer The buffer
+	 * @param end The position after the last byte of the buffer
+	 * @return The position after the last complete character. If the
+	 *   buffer ends with an incomplete sequence, this is the position of
+	 *   the first byte of that sequence.
+	 */
+	protected static int getCharacterBoundary(ByteBuffer buffer, int end)
+	{
+		// Look for the first byte of the last sequence, which is at most
+		// three bytes before the end
+		int lead = end - 1;
+		while (lead > 0 && lead > end - 4 && (buffer.get(lead) & 0xC0) == 0x80)
+		{
+			lead--;
+		}
+		int b = buffer.get(lead) & 0xFF;
+		int length;
+		if (b < 0x80)
+		{
+			length = 1;
+		}
+		else if ((b & 0xE0) == 0xC0)
+		{
+			length = 2;
+		}
+		else if ((b & 0xF0) == 0xE0)
+		{
+			length = 3;
+		}
+		else if ((b & 0xF8) == 0xF0)
+		{
+			length = 4;
+		}
+		else
+		{
+			// Malformed; the lexer will replace it anyway
+			return end;
+		}
+		return lead + length > end ? lead : end;
+	}
+}
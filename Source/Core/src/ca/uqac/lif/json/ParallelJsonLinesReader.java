@@ -0,0 +1,489 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+/**
+ * Reads a file of JSON elements written one per line, parsing its
+ * lines in parallel. This produces the same elements as a
+ * {@link JsonLinesReader}, but distributes the work over the threads of
+ * an {@link ExecutorService}.
+ * <p>
+ * The file is cut into chunks of roughly equal size, whose boundaries
+ * are moved to the next line end. Each chunk is memory-mapped and its
+ * lines are parsed by a task of the executor, directly from the mapped
+ * bytes; each thread of the executor uses its own parser. A chunk
+ * cannot be larger than 2 GB, which limits the length of a line. The
+ * elements produced are given to a
+ * {@link LineHandler}, always on the thread that called
+ * {@link #read(LineHandler)}, so that the handler needs no
+ * synchronization. Elements can be delivered either in the order of
+ * the file, or chunk by chunk as soon as each chunk is parsed. In both
+ * cases, the elements of a same chunk are delivered in order.
+ * <p>
+ * At most {@link #getMaxPendingChunks()} chunks are parsed or waiting
+ * to be delivered at any time, which bounds the memory used when the
+ * handler is slower than the parsing.
+ */
+public class ParallelJsonLinesReader
+{
+	/**
+	 * The default size of a chunk, in bytes
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * The size of the blocks read when looking for a chunk boundary
+	 */
+	protected static final int SCAN_SIZE = 4096;
+
+	/**
+	 * Receives the elements read from a file
+	 */
+	public static interface LineHandler
+	{
+		/**
+		 * Called for each element read
+		 * @param e The element
+		 */
+		public void element(JsonElement e);
+
+		/**
+		 * Called for each line that cannot be parsed
+		 * @param e The exception that occurred; its message starts with
+		 *   the position of the line in the file
+		 */
+		public void error(JsonParseException e);
+	}
+
+	/**
+	 * The file to read
+	 */
+	protected final File m_file;
+
+	/**
+	 * The executor running the parsing tasks
+	 */
+	protected final ExecutorService m_executor;
+
+	/**
+	 * The nominal size of a chunk, in bytes
+	 */
+	protected int m_chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Whether elements are delivered in the order of the file
+	 */
+	protected boolean m_ordered = true;
+
+	/**
+	 * The maximum number of chunks being parsed or waiting to be
+	 * delivered
+	 */
+	protected int m_maxPending = 2 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Whether object keys are interned
+	 */
+	protected boolean m_internKeys = false;
+
+	/**
+	 * Whether the maps produced keep their keys in document order
+	 */
+	protected boolean m_orderedMaps = false;
+
+	/**
+	 * Creates a new reader
+	 * @param file The file to read
+	 * @param executor The executor running the parsing tasks. It is not
+	 *   shut down by the reader.
+	 */
+	public ParallelJsonLinesReader(File file, ExecutorService executor)
+	{
+		super();
+		m_file = file;
+		m_executor = executor;
+	}
+
+	/**
+	 * Sets the nominal size of a chunk
+	 * @param size The size, in bytes
+	 */
+	public void setChunkSize(int size)
+	{
+		if (size <= 0)
+		{
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		m_chunkSize = size;
+	}
+
+	/**
+	 * Sets whether object keys are interned. Each thread of the executor
+	 * has its own table of keys.
+	 * @param intern true to intern keys
+	 * @see JsonParser#setInternKeys(boolean)
+	 */
+	public void setInternKeys(boolean intern)
+	{
+		m_internKeys = intern;
+	}
+
+	/**
+	 * Sets whether the maps produced keep their keys in document order
+	 * @param ordered true to preserve the order of keys
+	 * @see JsonParser#setOrderedMaps(boolean)
+	 */
+	public void setOrderedMaps(boolean ordered)
+	{
+		m_orderedMaps = ordered;
+	}
+
+	/**
+	 * Sets whether elements are delivered in the order of the file
+	 * @param ordered true to preserve the order of the file, false to
+	 *   deliver the elements of each chunk as soon as it is parsed
+	 */
+	public void setOrdered(boolean ordered)
+	{
+		m_ordered = ordered;
+	}
+
+	/**
+	 * Sets the maximum number of chunks being parsed or waiting to be
+	 * delivered
+	 * @param max The number of chunks
+	 */
+	public void setMaxPendingChunks(int max)
+	{
+		if (max <= 0)
+		{
+			throw new IllegalArgumentException("Number of chunks must be positive");
+		}
+		m_maxPending = max;
+	}
+
+	/**
+	 * Gets the maximum number of chunks being parsed or waiting to be
+	 * delivered
+	 * @return The number of chunks
+	 */
+	public int getMaxPendingChunks()
+	{
+		return m_maxPending;
+	}
+
+	/**
+	 * Reads the whole file
+	 * @param handler The handler receiving the elements
+	 * @throws IOException If reading the file fails, or if a line is too
+	 *   long to fit in a chunk
+	 * @throws InterruptedException If the calling thread is interrupted
+	 *   while waiting for a chunk
+	 */
+	public void read(LineHandler handler) throws IOException, InterruptedException
+	{
+		RandomAccessFile raf = new RandomAccessFile(m_file, "r");
+		try
+		{
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			CompletionService<ChunkResult> completion = m_ordered ? null : new ExecutorCompletionService<ChunkResult>(m_executor);
+			LinkedList<Future<ChunkResult>> pending = new LinkedList<Future<ChunkResult>>();
+			try
+			{
+				long start = 0;
+				while (start < size)
+				{
+					long end = findBoundary(channel, Math.min(size, start + m_chunkSize), size);
+					if (end - start > Integer.MAX_VALUE)
+					{
+						throw new IOException("Byte " + start + ": the chunk starting there is longer than 2 GB, because the line ending at byte " + end + " is too long");
+					}
+					ChunkTask task = new ChunkTask(channel, start, end, m_internKeys, m_orderedMaps);
+					pending.add(completion == null ? m_executor.submit(task) : completion.submit(task));
+					start = end;
+					if (pending.size() >= m_maxPending)
+					{
+						deliver(completion == null ? pending.removeFirst() : removeDone(completion, pending), handler);
+					}
+				}
+				while (!pending.isEmpty())
+				{
+					deliver(completion == null ? pending.removeFirst() : removeDone(completion, pending), handler);
+				}
+			}
+			finally
+			{
+				for (Future<ChunkResult> f : pending)
+				{
+					f.cancel(true);
+				}
+			}
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	/**
+	 * Waits for the next chunk to be parsed, in any order
+	 * @param completion The completion service to which chunks are
+	 *   submitted
+	 * @param pending The chunks not yet delivered
+	 * @return The chunk
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	protected static Future<ChunkResult> removeDone(CompletionService<ChunkResult> completion, List<Future<ChunkResult>> pending) throws InterruptedException
+	{
+		Future<ChunkResult> f = completion.take();
+		pending.remove(f);
+		return f;
+	}
+
+	/**
+	 * Gives the contents of a parsed chunk to the handler
+	 * @param f The chunk
+	 * @param handler The handler
+	 * @throws IOException If reading the chunk failed
+	 * @throws InterruptedException If the thread is interrupted
+	 */
+	protected static void deliver(Future<ChunkResult> f, LineHandler handler) throws IOException, InterruptedException
+	{
+		ChunkResult result;
+		try
+		{
+			result = f.get();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable t = e.getCause();
+			if (t instanceof IOException)
+			{
+				throw (IOException) t;
+			}
+			if (t instanceof RuntimeException)
+			{
+				throw (RuntimeException) t;
+			}
+			if (t instanceof Error)
+			{
+				throw (Error) t;
+			}
+			throw new IOException(t.toString());
+		}
+		for (Object o : result.m_items)
+		{
+			if (o instanceof JsonParseException)
+			{
+				handler.error((JsonParseException) o);
+			}
+			else
+			{
+				handler.element((JsonElement) o);
+			}
+		}
+	}
+
+	/**
+	 * Finds the first chunk boundary at or after a position, which is the
+	 * position following the next line end
+	 * @param channel The channel to read from
+	 * @param from The position where to start looking; the byte before
+	 *   it is examined first
+	 * @param size The size of the file
+	 * @return The boundary
+	 * @throws IOException If reading the file fails
+	 */
+	protected static long findBoundary(FileChannel channel, long from, long size) throws IOException
+	{
+		if (from >= size)
+		{
+			return size;
+		}
+		ByteBuffer block = ByteBuffer.allocate(SCAN_SIZE);
+		long pos = from - 1;
+		while (pos < size)
+		{
+			block.clear();
+			int read = channel.read(block, pos);
+			if (read <= 0)
+			{
+				break;
+			}
+			for (int i = 0; i < read; i++)
+			{
+				if (block.get(i) == '\n')
+				{
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	/**
+	 * The elements and errors produced by the parsing of a chunk
+	 */
+	protected static class ChunkResult
+	{
+		/**
+		 * The elements and parse exceptions, in the order of the lines
+		 */
+		protected final List<Object> m_items = new ArrayList<Object>();
+	}
+
+	/**
+	 * The task parsing the lines of a chunk
+	 */
+	protected static class ChunkTask implements Callable<ChunkResult>
+	{
+		/**
+		 * The parser used by each thread
+		 */
+		private static final transient ThreadLocal<JsonParser> s_parsers = new ThreadLocal<JsonParser>()
+		{
+			@Override
+			protected JsonParser initialValue()
+			{
+				return new JsonParser();
+			}
+		};
+
+		/**
+		 * The channel to read from
+		 */
+		protected final FileChannel m_channel;
+
+		/**
+		 * The position of the chunk in the file
+		 */
+		protected final long m_start;
+
+		/**
+		 * The position following the chunk in the file
+		 */
+		protected final long m_end;
+
+		/**
+		 * Whether object keys are interned
+		 */
+		protected final boolean m_internKeys;
+
+		/**
+		 * Whether the maps produced keep their keys in document order
+		 */
+		protected final boolean m_orderedMaps;
+
+		/**
+		 * Creates a new task
+		 * @param channel The channel to read from
+		 * @param start The position of the chunk in the file
+		 * @param end The position following the chunk in the file
+		 * @param intern_keys Whether object keys are interned
+		 * @param ordered_maps Whether the maps produced keep their keys in
+		 *   document order
+		 */
+		public ChunkTask(FileChannel channel, long start, long end, boolean intern_keys, boolean ordered_maps)
+		{
+			super();
+			m_channel = channel;
+			m_start = start;
+			m_end = end;
+			m_internKeys = intern_keys;
+			m_orderedMaps = ordered_maps;
+		}
+
+		@Override
+		public ChunkResult call() throws IOException
+		{
+			ChunkResult result = new ChunkResult();
+			JsonParser parser = s_parsers.get();
+			parser.setInternKeys(m_internKeys);
+			parser.setOrderedMaps(m_orderedMaps);
+			// The length is checked by read()
+			int limit = (int) (m_end - m_start);
+			MappedByteBuffer map = m_channel.map(FileChannel.MapMode.READ_ONLY, m_start, limit);
+			int start = 0;
+			if (m_start == 0 && limit >= 3 && map.get(0) == (byte) 0xEF
+					&& map.get(1) == (byte) 0xBB && map.get(2) == (byte) 0xBF)
+			{
+				// Skip the byte order mark
+				start = 3;
+			}
+			while (start < limit)
+			{
+				int end = start;
+				boolean blank = true;
+				while (end < limit)
+				{
+					byte b = map.get(end);
+					if (b == '\n')
+					{
+						break;
+					}
+					if (blank && b != ' ' && b != '\t' && b != '\r')
+					{
+						blank = false;
+					}
+					end++;
+				}
+				if (!blank)
+				{
+					try
+					{
+						// The parser reads the line without moving the position
+						map.limit(end);
+						map.position(start);
+						JsonElement e = parser.parse(map);
+						result.m_items.add(e == null ? JsonNull.instance : e);
+					}
+					catch (JsonParseException ex)
+					{
+						result.m_items.add(new JsonParseException("Byte " + (m_start + start) + ": " + ex.getMessage()));
+					}
+					finally
+					{
+						map.limit(limit);
+					}
+				}
+				start = end + 1;
+			}
+			return result;
+		}
+	}
+}
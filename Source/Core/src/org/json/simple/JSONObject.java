@@ -64,7 +64,7 @@ public class JSONObject extends HashMap implements Map, JSONAware, JSONStreamAwa
                 out.write(',');
 			Map.Entry entry=(Map.Entry)iter.next();
             out.write('\"');
-            out.write(escape(String.valueOf(entry.getKey())));
+            JSONValue.escape(String.valueOf(entry.getKey()), out);
             out.write('\"');
             out.write(':');
 			JSONValue.writeJSONString(entry.getValue(), out);
@@ -106,7 +106,7 @@ public class JSONObject extends HashMap implements Map, JSONAware, JSONStreamAwa
 	}
 
 	public static String toString(String key,Object value){
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         sb.append('\"');
         if(key == null)
             sb.append("null");
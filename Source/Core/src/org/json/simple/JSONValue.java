@@ -125,7 +125,7 @@ public class JSONValue {
 		
 		if(value instanceof String){		
             out.write('\"');
-			out.write(escape((String)value));
+			escape((String)value, out);
             out.write('\"');
 			return;
 		}
@@ -257,59 +257,131 @@ public class JSONValue {
 	public static String escape(String s){
 		if(s==null)
 			return null;
-        StringBuffer sb = new StringBuffer();
-        escape(s, sb);
+		final int len = s.length();
+		int i = 0;
+		while(i<len && !mustEscape(s.charAt(i)))
+			i++;
+		if(i==len){
+			// Nothing to escape: no copy is made
+			return s;
+		}
+        StringBuilder sb = new StringBuilder(len + 16);
+        sb.append(s, 0, i);
+        try{
+        	escape(s, i, sb);
+        }
+        catch(IOException e){
+        	// Cannot happen with a StringBuilder
+        	throw new RuntimeException(e);
+        }
         return sb.toString();
     }
 
     /**
+     * Hexadecimal digits used in Unicode escape sequences
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Determines if a character must be escaped in a JSON string.
+     * 
+     * @param ch
+     * @return true if the character must be escaped
+     */
+    private static boolean mustEscape(char ch) {
+    	if(ch>='\u0020' && ch<'\u007F')
+    		return ch=='"' || ch=='\\' || ch=='/';
+    	return ch<='\u001F' || (ch>='\u007F' && ch<='\u009F') || (ch>='\u2000' && ch<='\u20FF');
+    }
+
+    /**
+     * Escape a string and append the result to a destination, without
+     * building an intermediate string. Runs of characters that do not
+     * need escaping are appended in one call.
+     * 
+     * @see #escape(String)
+     * 
      * @param s - Must not be null.
-     * @param sb
+     * @param out
+     * @throws IOException
+     */
+    public static void escape(String s, Appendable out) throws IOException {
+    	escape(s, 0, out);
+    }
+
+    /**
+     * Escape the characters of a string from a given position, and append
+     * the result to a destination.
+     * 
+     * @param s - Must not be null.
+     * @param from - The position of the first character to escape
+     * @param out
+     * @throws IOException
      */
-    static void escape(String s, StringBuffer sb) {
+    private static void escape(String s, int from, Appendable out) throws IOException {
     	final int len = s.length();
-		for(int i=0;i<len;i++){
+    	int start = from;
+		for(int i=from;i<len;i++){
 			char ch=s.charAt(i);
+			if(!mustEscape(ch))
+				continue;
+			String esc;
 			switch(ch){
 			case '"':
-				sb.append("\\\"");
+				esc="\\\"";
 				break;
 			case '\\':
-				sb.append("\\\\");
+				esc="\\\\";
 				break;
 			case '\b':
-				sb.append("\\b");
+				esc="\\b";
 				break;
 			case '\f':
-				sb.append("\\f");
+				esc="\\f";
 				break;
 			case '\n':
-				sb.append("\\n");
+				esc="\\n";
 				break;
 			case '\r':
-				sb.append("\\r");
+				esc="\\r";
 				break;
 			case '\t':
-				sb.append("\\t");
+				esc="\\t";
 				break;
 			case '/':
-				sb.append("\\/");
+				esc="\\/";
 				break;
 			default:
-                //Reference: http://www.unicode.org/versions/Unicode5.1.0/
-				if((ch>='\u0000' && ch<='\u001F') || (ch>='\u007F' && ch<='\u009F') || (ch>='\u2000' && ch<='\u20FF')){
-					String ss=Integer.toHexString(ch);
-					sb.append("\\u");
-					for(int k=0;k<4-ss.length();k++){
-						sb.append('0');
-					}
-					sb.append(ss.toUpperCase());
-				}
-				else{
-					sb.append(ch);
-				}
+				esc=null;
+			}
+			if(start<i)
+				out.append(s, start, i);
+			if(esc!=null){
+				out.append(esc);
 			}
+			else{
+				out.append('\\').append('u')
+					.append(HEX_DIGITS[(ch >> 12) & 0xF]).append(HEX_DIGITS[(ch >> 8) & 0xF])
+					.append(HEX_DIGITS[(ch >> 4) & 0xF]).append(HEX_DIGITS[ch & 0xF]);
+			}
+			start=i+1;
 		}//for
+		if(start<len)
+			out.append(s, start, len);
+	}
+
+    /**
+     * @param s - Must not be null.
+     * @param sb
+     */
+    static void escape(String s, StringBuilder sb) {
+    	try{
+    		escape(s, (Appendable) sb);
+    	}
+    	catch(IOException e){
+    		// Cannot happen with a StringBuilder
+    		throw new RuntimeException(e);
+    	}
 	}
 
 }
@@ -0,0 +1,197 @@
+package org.json.simple.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A push parser for JSON text encoded in UTF-8, for input that arrives
+ * in chunks, such as from a non-blocking socket. Each chunk is handed
+ * to {@link #feed(ByteBuffer)}, which sends the content handler the
+ * events of all the tokens that the chunk completes, and returns as
+ * soon as the input runs out. A chunk may end anywhere, including in
+ * the middle of a token or of a multi-byte character: the lexer and the
+ * parser keep their state until the next chunk. {@link #endOfInput()}
+ * is called once the whole input has been fed.
+ * <p>
+ * The bytes of a chunk are copied, so that the caller can reuse its
+ * buffer as soon as feed() returns. Like JSONParser, this class is NOT
+ * thread-safe.
+ *
+ * @see JSONParser#parse(Yylex.ByteSource, ContentHandler, boolean)
+ */
+public class JSONFeedParser {
+	private final JSONParser parser = new JSONParser();
+	private final ContentHandler contentHandler;
+	private final FeedSource source = new FeedSource();
+	private boolean started;
+
+	/**
+	 * @param contentHandler - The handler receiving the events of the document.
+	 */
+	public JSONFeedParser(ContentHandler contentHandler){
+		this.contentHandler = contentHandler;
+	}
+
+	/**
+	 * @see JSONParser#setInternKeys(boolean)
+	 *
+	 * @param intern - true to intern keys.
+	 */
+	public void setInternKeys(boolean intern){
+		parser.setInternKeys(intern);
+	}
+
+	/**
+	 * @see JSONParser#setMaxDepth(int)
+	 *
+	 * @param maxDepth - The maximum depth; must be at least 1.
+	 */
+	public void setMaxDepth(int maxDepth){
+		parser.setMaxDepth(maxDepth);
+	}
+
+	/**
+	 * Parses a chunk of input. The bytes read are those between the
+	 * position and the limit of the buffer, and the position is advanced
+	 * to the limit.
+	 * <p>
+	 * If the content handler stops the parsing by returning false, the
+	 * rest of the input is kept, and parsing is resumed by the next call
+	 * to this method, which can be given an empty buffer.
+	 *
+	 * @param bytes - The chunk.
+	 * @return true if all the input fed so far has been parsed, false if
+	 *   the content handler stopped the parsing.
+	 * @throws IOException - If the content handler throws it.
+	 * @throws ParseException - If the input is not valid JSON.
+	 * @throws IllegalStateException - If endOfInput() has been called.
+	 */
+	public boolean feed(ByteBuffer bytes) throws IOException, ParseException{
+		if(source.closed)
+			throw new IllegalStateException("The end of the input has already been reached");
+		source.append(bytes);
+		return parse();
+	}
+
+	/**
+	 * Signals that all the input has been fed, and parses what remains
+	 * of it. The content handler receives endJSON() if the document is
+	 * complete.
+	 *
+	 * @return true if the document has been parsed entirely, false if the
+	 *   content handler stopped the parsing; in that case, parsing is
+	 *   resumed by calling this method again.
+	 * @throws IOException - If the content handler throws it.
+	 * @throws ParseException - If the input is not valid JSON, or if the
+	 *   document is incomplete.
+	 */
+	public boolean endOfInput() throws IOException, ParseException{
+		source.closed = true;
+		return parse();
+	}
+
+	/**
+	 * @return true if the document has been parsed entirely.
+	 */
+	public boolean isFinished(){
+		return parser.isEnded();
+	}
+
+	/**
+	 * @return The number of characters read so far, which is the position
+	 *   of the token being read.
+	 */
+	public long getPosition(){
+		return parser.getLongPosition();
+	}
+
+	private boolean parse() throws IOException, ParseException{
+		if(parser.isEnded())
+			return true;
+		boolean resume = started;
+		started = true;
+		try{
+			parser.parse(source, contentHandler, resume);
+		}
+		catch(Yylex.InputPendingException e){
+			// All the input available has been parsed
+			return true;
+		}
+		return parser.isEnded();
+	}
+
+	/**
+	 * Holds the bytes fed to the parser, and hands them to the lexer.
+	 * Only complete UTF-8 sequences are handed out: the bytes of a
+	 * sequence cut at the end of a chunk wait for the next chunk, unless
+	 * the input has ended.
+	 */
+	private static final class FeedSource implements Yylex.ByteSource {
+		private byte[] buf = new byte[1024];
+		/** The first byte not handed out yet */
+		private int start;
+		/** The end of the bytes fed */
+		private int end;
+		boolean closed;
+
+		void append(ByteBuffer bytes){
+			int n = bytes.remaining();
+			if(end + n > buf.length){
+				/*
+				 * The lexer may still be reading the last buffer handed out,
+				 * if the content handler stopped the parsing: a new array
+				 * is used, and the old one is left untouched.
+				 */
+				byte[] newBuf = new byte[Math.max(buf.length * 2, end - start + n)];
+				System.arraycopy(buf, start, newBuf, 0, end - start);
+				end -= start;
+				start = 0;
+				buf = newBuf;
+			}
+			bytes.get(buf, end, n);
+			end += n;
+		}
+
+		public ByteBuffer nextBytes() throws IOException{
+			// The lexer is done with the buffers handed out before
+			if(start > 0){
+				System.arraycopy(buf, start, buf, 0, end - start);
+				end -= start;
+				start = 0;
+			}
+			int limit = closed ? end : completeEnd();
+			if(limit == 0){
+				if(closed)
+					return null;
+				throw new Yylex.InputPendingException();
+			}
+			start = limit;
+			return ByteBuffer.wrap(buf, 0, limit);
+		}
+
+		/**
+		 * @return The end of the last complete UTF-8 sequence fed, from
+		 *   position 0.
+		 */
+		private int completeEnd(){
+			int i = end - 1;
+			while(i >= 0 && i > end - 4 && (buf[i] & 0xC0) == 0x80)
+				i--;
+			if(i < 0)
+				return end;
+			int b = buf[i];
+			int length;
+			if(b >= 0)
+				length = 1;
+			else if((b & 0xE0) == 0xC0)
+				length = 2;
+			else if((b & 0xF0) == 0xE0)
+				length = 3;
+			else if((b & 0xF8) == 0xF0)
+				length = 4;
+			else
+				length = 1;
+			return end - i < length ? i : end;
+		}
+	}
+}
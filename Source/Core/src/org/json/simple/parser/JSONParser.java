@@ -7,6 +7,8 @@ package org.json.simple.parser;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,16 +34,56 @@ public class JSONParser {
 	public static final int S_END=6;
 	public static final int S_IN_ERROR=-1;
 	
-	private LinkedList handlerStatusStack;
+	/**
+	 * The maximum nesting depth of objects and arrays accepted by default.
+	 */
+	public static final int DEFAULT_MAX_DEPTH=1000;
+	
+	/**
+	 * The stack of statuses, the top being at statusCount-1. The same
+	 * array is reused across documents, and is kept between calls when a
+	 * content handler parsing is resumed.
+	 */
+	private int[] statusStack = new int[16];
+	/** The size above which release() shrinks the status stack */
+	private static final int MAX_KEPT_STATUSES = 1024;
+	private int statusCount;
+	/** The number of objects and arrays currently open */
+	private int depth;
+	private int maxDepth = DEFAULT_MAX_DEPTH;
+	/** Whether a content handler parsing has started and can be resumed */
+	private boolean handlerStarted;
+	/** Whether startJSON() has been sent to the content handler */
+	private boolean jsonStarted;
 	private Yylex lexer = new Yylex((Reader)null);
-	private Yytoken token = null;
+	private Yytoken token = new Yytoken(Yytoken.TYPE_EOF, null);
 	private int status = S_INIT;
 	
-	private int peekStatus(LinkedList statusStack){
-		if(statusStack.size()==0)
+	private int peekStatus(){
+		if(statusCount==0)
 			return -1;
-		Integer status=(Integer)statusStack.getFirst();
-		return status.intValue();
+		return statusStack[statusCount-1];
+	}
+	
+	/**
+	 * Pushes a status on the stack. Pushing S_IN_OBJECT or S_IN_ARRAY
+	 * opens a container, which fails if the maximum depth is reached.
+	 */
+	private void pushStatus(int s) throws ParseException{
+		if(s==S_IN_OBJECT || s==S_IN_ARRAY){
+			if(depth>=maxDepth)
+				throw new ParseException(getLongPosition(), ParseException.ERROR_MAX_DEPTH, Integer.valueOf(maxDepth));
+			depth++;
+		}
+		if(statusCount==statusStack.length)
+			statusStack=Arrays.copyOf(statusStack, statusCount*2);
+		statusStack[statusCount++]=s;
+	}
+	
+	private void popStatus(){
+		int s=statusStack[--statusCount];
+		if(s==S_IN_OBJECT || s==S_IN_ARRAY)
+			depth--;
 	}
 	
     /**
@@ -49,9 +91,12 @@ public class JSONParser {
      *
      */
     public void reset(){
-        token = null;
+        token.type = Yytoken.TYPE_EOF;
         status = S_INIT;
-        handlerStatusStack = null;
+        statusCount = 0;
+        depth = 0;
+        handlerStarted = false;
+        jsonStarted = false;
     }
     
     /**
@@ -67,9 +112,93 @@ public class JSONParser {
 	}
 	
 	/**
-	 * @return The position of the beginning of the current token.
+	 * Reset the parser to the initial state with a new buffer of UTF-8
+	 * encoded bytes.
+	 * 
+	 * @param in - The new buffer. Its position is not modified by the parser.
+	 */
+	public void reset(ByteBuffer in){
+		lexer.yyreset(in.duplicate());
+		reset();
+	}
+	
+	/**
+	 * Reset the parser to the initial state with a new sequence of
+	 * buffers of UTF-8 encoded bytes.
+	 * 
+	 * @param in - The source of the buffers.
+	 */
+	public void reset(Yylex.ByteSource in){
+		lexer.yyreset(in);
+		reset();
+	}
+	
+	/**
+	 * Reset the parser to the initial state, and release its input and the
+	 * buffers that grew large while parsing, so that a parser kept between
+	 * documents does not hold on to them. The parser must be reset with a
+	 * new input before it is used again.
+	 */
+	public void release(){
+		lexer.yyrelease();
+		reset();
+		if(statusStack.length>MAX_KEPT_STATUSES)
+			statusStack=new int[16];
+	}
+	
+	/**
+	 * Sets whether object keys are interned by the lexer. Interned keys
+	 * that were already seen in this or a previous document are returned
+	 * as the same String instance.
+	 * 
+	 * @param intern - true to intern keys.
+	 */
+	public void setInternKeys(boolean intern){
+		lexer.yyinternKeys(intern);
+	}
+	
+	/**
+	 * Sets the maximum nesting depth of objects and arrays. A document
+	 * that nests deeper is rejected with a ParseException of type
+	 * ERROR_MAX_DEPTH as soon as the container that exceeds the limit is
+	 * opened, so that maliciously deep input cannot exhaust memory.
+	 * 
+	 * @param maxDepth - The maximum depth; must be at least 1.
+	 */
+	public void setMaxDepth(int maxDepth){
+		if(maxDepth<1)
+			throw new IllegalArgumentException("Maximum depth must be at least 1");
+		this.maxDepth = maxDepth;
+	}
+	
+	/**
+	 * @return The maximum nesting depth of objects and arrays.
+	 * @see #setMaxDepth(int)
+	 */
+	public int getMaxDepth(){
+		return maxDepth;
+	}
+	
+	/**
+	 * @return true if the content handler parsing has reached the end
+	 *   of the input, after the handler received endJSON().
+	 */
+	boolean isEnded(){
+		return status == S_END;
+	}
+	
+	/**
+	 * @return The position of the beginning of the current token, or
+	 *   Integer.MAX_VALUE if it does not fit in an int; see getLongPosition().
 	 */
 	public int getPosition(){
+		return (int) Math.min(lexer.getPosition(), Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @return The position of the beginning of the current token.
+	 */
+	public long getLongPosition(){
 		return lexer.getPosition();
 	}
 	
@@ -113,7 +242,6 @@ public class JSONParser {
 	@SuppressWarnings("unchecked")
 	public Object parse(Reader in, ContainerFactory containerFactory) throws IOException, ParseException{
 		reset(in);
-		LinkedList statusStack = new LinkedList();
 		LinkedList valueStack = new LinkedList();
 		
 		try{
@@ -124,17 +252,17 @@ public class JSONParser {
 					switch(token.type){
 					case Yytoken.TYPE_VALUE:
 						status=S_IN_FINISHED_VALUE;
-						statusStack.addFirst(new Integer(status));
-						valueStack.addFirst(token.value);
+						pushStatus(status);
+						valueStack.addFirst(lexer.yyvalue());
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(createObjectContainer(containerFactory));
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(createArrayContainer(containerFactory));
 						break;
 					default:
@@ -146,18 +274,18 @@ public class JSONParser {
 					if(token.type==Yytoken.TYPE_EOF)
 						return valueStack.removeFirst();
 					else
-						throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+						throw unexpectedToken();
 					
 				case S_IN_OBJECT:
 					switch(token.type){
 					case Yytoken.TYPE_COMMA:
 						break;
 					case Yytoken.TYPE_VALUE:
-						if(token.value instanceof String){
-							String key=(String)token.value;
+						if(lexer.yyvaluekind()==Yytoken.VALUE_STRING){
+							String key=lexer.yystring();
 							valueStack.addFirst(key);
 							status=S_PASSED_PAIR_KEY;
-							statusStack.addFirst(new Integer(status));
+							pushStatus(status);
 						}
 						else{
 							status=S_IN_ERROR;
@@ -165,9 +293,9 @@ public class JSONParser {
 						break;
 					case Yytoken.TYPE_RIGHT_BRACE:
 						if(valueStack.size()>1){
-							statusStack.removeFirst();
+							popStatus();
 							valueStack.removeFirst();
-							status=peekStatus(statusStack);
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -184,30 +312,30 @@ public class JSONParser {
 					case Yytoken.TYPE_COLON:
 						break;
 					case Yytoken.TYPE_VALUE:
-						statusStack.removeFirst();
+						popStatus();
 						String key=(String)valueStack.removeFirst();
 						Map parent=(Map)valueStack.getFirst();
-						parent.put(key,token.value);
-						status=peekStatus(statusStack);
+						parent.put(key,lexer.yyvalue());
+						status=peekStatus();
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
-						statusStack.removeFirst();
+						popStatus();
 						key=(String)valueStack.removeFirst();
 						parent=(Map)valueStack.getFirst();
 						List newArray=createArrayContainer(containerFactory);
 						parent.put(key,newArray);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(newArray);
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
-						statusStack.removeFirst();
+						popStatus();
 						key=(String)valueStack.removeFirst();
 						parent=(Map)valueStack.getFirst();
 						Map newObject=createObjectContainer(containerFactory);
 						parent.put(key,newObject);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(newObject);
 						break;
 					default:
@@ -221,13 +349,13 @@ public class JSONParser {
 						break;
 					case Yytoken.TYPE_VALUE:
 						List val=(List)valueStack.getFirst();
-						val.add(token.value);
+						val.add(lexer.yyvalue());
 						break;
 					case Yytoken.TYPE_RIGHT_SQUARE:
 						if(valueStack.size()>1){
-							statusStack.removeFirst();
+							popStatus();
 							valueStack.removeFirst();
-							status=peekStatus(statusStack);
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -238,7 +366,7 @@ public class JSONParser {
 						Map newObject=createObjectContainer(containerFactory);
 						val.add(newObject);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(newObject);
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
@@ -246,7 +374,7 @@ public class JSONParser {
 						List newArray=createArrayContainer(containerFactory);
 						val.add(newArray);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						valueStack.addFirst(newArray);
 						break;
 					default:
@@ -254,10 +382,10 @@ public class JSONParser {
 					}//inner switch
 					break;
 				case S_IN_ERROR:
-					throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+					throw unexpectedToken();
 				}//switch
 				if(status==S_IN_ERROR){
-					throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+					throw unexpectedToken();
 				}
 			}while(token.type!=Yytoken.TYPE_EOF);
 		}
@@ -265,13 +393,43 @@ public class JSONParser {
 			throw ie;
 		}
 		
-		throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+		throw unexpectedToken();
 	}
 	
+	/**
+	 * Reads the next token. The same Yytoken instance is reused for all
+	 * tokens, and only its type is set; the value of the token is
+	 * obtained from the lexer when it is needed, so that no object is
+	 * created for structural tokens and numbers.
+	 */
 	private void nextToken() throws ParseException, IOException{
-		token = lexer.yylex();
-		if(token == null)
-			token = new Yytoken(Yytoken.TYPE_EOF, null);
+		lexer.yykey(status == S_IN_OBJECT);
+		token.type = lexer.yynext();
+	}
+	
+	/**
+	 * Creates the exception signalling that the current token is not
+	 * expected. The exception holds its own copy of the token.
+	 */
+	private ParseException unexpectedToken(){
+		return new ParseException(getLongPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, new Yytoken(token.type, lexer.yyvalue()));
+	}
+	
+	/**
+	 * Passes the value of the current token to a content handler. Numbers
+	 * are passed without being boxed if the handler accepts them as
+	 * primitive values.
+	 */
+	private boolean primitive(ContentHandler contentHandler) throws ParseException, IOException{
+		if(contentHandler instanceof PrimitiveContentHandler){
+			switch(lexer.yyvaluekind()){
+			case Yytoken.VALUE_LONG:
+				return ((PrimitiveContentHandler)contentHandler).primitive(lexer.yylong());
+			case Yytoken.VALUE_DOUBLE:
+				return ((PrimitiveContentHandler)contentHandler).primitive(lexer.yydouble());
+			}
+		}
+		return contentHandler.primitive(lexer.yyvalue());
 	}
 	
 	private Map createObjectContainer(ContainerFactory containerFactory){
@@ -329,44 +487,107 @@ public class JSONParser {
 	 * @throws IOException
 	 * @throws ParseException
 	 */
-	@SuppressWarnings("unchecked")
 	public void parse(Reader in, ContentHandler contentHandler, boolean isResume) throws IOException, ParseException{
-		if(!isResume){
+		if(!isResume || !handlerStarted){
 			reset(in);
-			handlerStatusStack = new LinkedList();
+			handlerStarted = true;
 		}
-		else{
-			if(handlerStatusStack == null){
-				isResume = false;
-				reset(in);
-				handlerStatusStack = new LinkedList();
-			}
+		parse(contentHandler);
+	}
+	
+	public void parse(ByteBuffer in, ContentHandler contentHandler) throws ParseException{
+		parse(in, contentHandler, false);
+	}
+	
+	/**
+	 * Stream processing of JSON text encoded in UTF-8. The bytes are
+	 * decoded directly into the lexer's buffer, without going through a
+	 * Reader or an intermediate String. The bytes read are those between
+	 * the buffer's position and its limit; the position of the buffer
+	 * is not modified. Both heap and direct buffers are accepted.
+	 * 
+	 * @see #parse(Reader, ContentHandler, boolean)
+	 * 
+	 * @param in
+	 * @param contentHandler
+	 * @param isResume - Indicates if it continues previous parsing operation.
+	 * 
+	 * @throws ParseException
+	 */
+	public void parse(ByteBuffer in, ContentHandler contentHandler, boolean isResume) throws ParseException{
+		if(!isResume || !handlerStarted){
+			reset(in);
+			handlerStarted = true;
 		}
-		
-		LinkedList statusStack = handlerStatusStack;	
-		
+		try{
+			parse(contentHandler);
+		}
+		catch(IOException ie){
+			/*
+			 * Can only come from the content handler.
+			 */
+			throw new ParseException(-1, ParseException.ERROR_UNEXPECTED_EXCEPTION, ie);
+		}
+	}
+	
+	public void parse(Yylex.ByteSource in, ContentHandler contentHandler) throws IOException, ParseException{
+		parse(in, contentHandler, false);
+	}
+	
+	/**
+	 * Stream processing of JSON text encoded in UTF-8 and split into a
+	 * sequence of buffers, such as windows mapped from a large file.
+	 * If the source throws a Yylex.InputPendingException, the exception
+	 * is propagated but the parser is left in its current state: calling
+	 * this method again with isResume set to true reads the interrupted
+	 * token again, and continues.
+	 * 
+	 * @see #parse(ByteBuffer, ContentHandler, boolean)
+	 * @see JSONFeedParser
+	 * 
+	 * @param in
+	 * @param contentHandler
+	 * @param isResume - Indicates if it continues previous parsing operation.
+	 * 
+	 * @throws IOException
+	 * @throws ParseException
+	 */
+	public void parse(Yylex.ByteSource in, ContentHandler contentHandler, boolean isResume) throws IOException, ParseException{
+		if(!isResume || !handlerStarted){
+			reset(in);
+			handlerStarted = true;
+		}
+		parse(contentHandler);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void parse(ContentHandler contentHandler) throws IOException, ParseException{
 		try{
 			do{
 				switch(status){
 				case S_INIT:
-					contentHandler.startJSON();
+					if(!jsonStarted){
+						// Not sent again if the first token is not available yet
+						jsonStarted = true;
+						contentHandler.startJSON();
+					}
 					nextToken();
 					switch(token.type){
 					case Yytoken.TYPE_VALUE:
 						status=S_IN_FINISHED_VALUE;
-						statusStack.addFirst(new Integer(status));
-						if(!contentHandler.primitive(token.value))
+						pushStatus(status);
+						if(!primitive(contentHandler))
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
@@ -384,7 +605,7 @@ public class JSONParser {
 					}
 					else{
 						status = S_IN_ERROR;
-						throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+						throw unexpectedToken();
 					}
 			
 				case S_IN_OBJECT:
@@ -393,10 +614,10 @@ public class JSONParser {
 					case Yytoken.TYPE_COMMA:
 						break;
 					case Yytoken.TYPE_VALUE:
-						if(token.value instanceof String){
-							String key=(String)token.value;
+						if(lexer.yyvaluekind()==Yytoken.VALUE_STRING){
+							String key=lexer.yystring();
 							status=S_PASSED_PAIR_KEY;
-							statusStack.addFirst(new Integer(status));
+							pushStatus(status);
 							if(!contentHandler.startObjectEntry(key))
 								return;
 						}
@@ -405,9 +626,9 @@ public class JSONParser {
 						}
 						break;
 					case Yytoken.TYPE_RIGHT_BRACE:
-						if(statusStack.size()>1){
-							statusStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(statusCount>1){
+							popStatus();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -427,26 +648,29 @@ public class JSONParser {
 					case Yytoken.TYPE_COLON:
 						break;
 					case Yytoken.TYPE_VALUE:
-						statusStack.removeFirst();
-						status=peekStatus(statusStack);
-						if(!contentHandler.primitive(token.value))
-							return;
-						if(!contentHandler.endObjectEntry())
+						/*
+						 * The end of the entry is signalled in state S_IN_PAIR_VALUE,
+						 * so that it is not lost if the handler stops after the value.
+						 */
+						popStatus();
+						status=S_IN_PAIR_VALUE;
+						pushStatus(status);
+						if(!primitive(contentHandler))
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
-						statusStack.removeFirst();
-						statusStack.addFirst(new Integer(S_IN_PAIR_VALUE));
+						popStatus();
+						pushStatus(S_IN_PAIR_VALUE);
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
-						statusStack.removeFirst();
-						statusStack.addFirst(new Integer(S_IN_PAIR_VALUE));
+						popStatus();
+						pushStatus(S_IN_PAIR_VALUE);
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
@@ -460,8 +684,8 @@ public class JSONParser {
 					 * S_IN_PAIR_VALUE is just a marker to indicate the end of an object entry, it doesn't proccess any token,
 					 * therefore delay consuming token until next round.
 					 */
-					statusStack.removeFirst();
-					status = peekStatus(statusStack);
+					popStatus();
+					status = peekStatus();
 					if(!contentHandler.endObjectEntry())
 						return;
 					break;
@@ -472,13 +696,13 @@ public class JSONParser {
 					case Yytoken.TYPE_COMMA:
 						break;
 					case Yytoken.TYPE_VALUE:
-						if(!contentHandler.primitive(token.value))
+						if(!primitive(contentHandler))
 							return;
 						break;
 					case Yytoken.TYPE_RIGHT_SQUARE:
-						if(statusStack.size()>1){
-							statusStack.removeFirst();
-							status=peekStatus(statusStack);
+						if(statusCount>1){
+							popStatus();
+							status=peekStatus();
 						}
 						else{
 							status=S_IN_FINISHED_VALUE;
@@ -488,13 +712,13 @@ public class JSONParser {
 						break;
 					case Yytoken.TYPE_LEFT_BRACE:
 						status=S_IN_OBJECT;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startObject())
 							return;
 						break;
 					case Yytoken.TYPE_LEFT_SQUARE:
 						status=S_IN_ARRAY;
-						statusStack.addFirst(new Integer(status));
+						pushStatus(status);
 						if(!contentHandler.startArray())
 							return;
 						break;
@@ -507,13 +731,20 @@ public class JSONParser {
 					return;
 					
 				case S_IN_ERROR:
-					throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+					throw unexpectedToken();
 				}//switch
 				if(status==S_IN_ERROR){
-					throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+					throw unexpectedToken();
 				}
 			}while(token.type!=Yytoken.TYPE_EOF);
 		}
+		catch(Yylex.InputPendingException pe){
+			/*
+			 * The input is not complete: the current token is read again
+			 * when parsing is resumed.
+			 */
+			throw pe;
+		}
 		catch(IOException ie){
 			status = S_IN_ERROR;
 			throw ie;
@@ -532,6 +763,6 @@ public class JSONParser {
 		}
 		
 		status = S_IN_ERROR;
-		throw new ParseException(getPosition(), ParseException.ERROR_UNEXPECTED_TOKEN, token);
+		throw unexpectedToken();
 	}
 }
@@ -12,10 +12,11 @@ public class ParseException extends Exception {
 	public static final int ERROR_UNEXPECTED_CHAR = 0;
 	public static final int ERROR_UNEXPECTED_TOKEN = 1;
 	public static final int ERROR_UNEXPECTED_EXCEPTION = 2;
+	public static final int ERROR_MAX_DEPTH = 3;
 
 	private int errorType;
 	private Object unexpectedObject;
-	private int position;
+	private long position;
 	
 	public ParseException(int errorType){
 		this(-1, errorType, null);
@@ -26,6 +27,16 @@ public class ParseException extends Exception {
 	}
 	
 	public ParseException(int position, int errorType, Object unexpectedObject){
+		this((long) position, errorType, unexpectedObject);
+	}
+	
+	/**
+	 * @param position - The character position of the error, which may
+	 *   exceed the range of an int in large inputs.
+	 * @param errorType - One of the ERROR_ constants.
+	 * @param unexpectedObject - The object described by the error type.
+	 */
+	public ParseException(long position, int errorType, Object unexpectedObject){
 		this.position = position;
 		this.errorType = errorType;
 		this.unexpectedObject = unexpectedObject;
@@ -42,9 +53,17 @@ public class ParseException extends Exception {
 	/**
 	 * @see org.json.simple.parser.JSONParser#getPosition()
 	 * 
-	 * @return The character position (starting with 0) of the input where the error occurs.
+	 * @return The character position (starting with 0) of the input where the error occurs,
+	 *   or Integer.MAX_VALUE if it does not fit in an int; see getLongPosition().
 	 */
 	public int getPosition() {
+		return (int) Math.min(position, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * @return The character position (starting with 0) of the input where the error occurs.
+	 */
+	public long getLongPosition() {
 		return position;
 	}
 	
@@ -59,6 +78,7 @@ public class ParseException extends Exception {
 	 * 		   	ERROR_UNEXPECTED_CHAR		java.lang.Character
 	 * 			ERROR_UNEXPECTED_TOKEN		org.json.simple.parser.Yytoken
 	 * 			ERROR_UNEXPECTED_EXCEPTION	java.lang.Exception
+	 * 			ERROR_MAX_DEPTH				java.lang.Integer, the maximum depth
 	 */
 	public Object getUnexpectedObject() {
 		return unexpectedObject;
@@ -81,6 +101,9 @@ public class ParseException extends Exception {
 		case ERROR_UNEXPECTED_EXCEPTION:
 			sb.append("Unexpected exception at position ").append(position).append(": ").append(unexpectedObject);
 			break;
+		case ERROR_MAX_DEPTH:
+			sb.append("Maximum nesting depth (").append(unexpectedObject).append(") exceeded at position ").append(position).append(".");
+			break;
 		default:
 			sb.append("Unkown error at position ").append(position).append(".");
 			break;
@@ -0,0 +1,35 @@
+package org.json.simple.parser;
+
+import java.io.IOException;
+
+/**
+ * A content handler that receives numbers as primitive values. When the
+ * handler given to JSONParser implements this interface, integers and
+ * decimal numbers are passed to the methods below instead of being boxed
+ * and passed to {@link ContentHandler#primitive(Object)}, which still
+ * receives strings, Booleans and null.
+ * 
+ * @see org.json.simple.parser.JSONParser#parse(java.io.Reader, ContentHandler, boolean)
+ */
+public interface PrimitiveContentHandler extends ContentHandler {
+	/**
+	 * Receive notification of an integer value.
+	 * 
+	 * @param value - The value.
+	 * 
+	 * @return false if the handler wants to stop parsing after return.
+	 * @throws ParseException
+	 */
+	boolean primitive(long value) throws ParseException, IOException;
+	
+	/**
+	 * Receive notification of a decimal number.
+	 * 
+	 * @param value - The value.
+	 * 
+	 * @return false if the handler wants to stop parsing after return.
+	 * @throws ParseException
+	 */
+	boolean primitive(double value) throws ParseException, IOException;
+	
+}
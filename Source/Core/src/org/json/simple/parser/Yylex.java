@@ -2,7 +2,7 @@
 
 package org.json.simple.parser;
 
-class Yylex {
+public class Yylex {
 
   /** This character denotes the end of file */
   public static final int YYEOF = -1;
@@ -247,8 +247,9 @@ class Yylex {
   @SuppressWarnings("unused")
 private int yyline;
 
-  /** the number of characters up to the start of the matched text */
-  private int yychar;
+  /** the number of characters up to the start of the matched text; a
+      long, since the input may exceed 2^31 characters */
+  private long yychar;
 
   /**
    * the number of characters from the last newline up to the start of the 
@@ -267,12 +268,729 @@ private boolean zzAtBOL = true;
   private boolean zzAtEOF;
 
   /* user code: */
-private StringBuffer sb=new StringBuffer();
+/** the characters of the string being read, when they cannot be taken
+    directly from zzBuffer; reused across strings */
+private char[] zzChars = new char[64];
 
-int getPosition(){
+/** number of characters in zzChars */
+private int zzCharsLength;
+
+/** whether the value of the string being read has already been created
+    from zzBuffer */
+private boolean zzSliced;
+
+/** the UTF-8 input, when bytes are decoded directly instead of read
+    from zzReader */
+private java.nio.ByteBuffer zzBytes;
+
+/** scratch array used to copy bytes out of a direct zzBytes */
+private byte[] zzByteChunk;
+
+/** number of entries in the table of interned keys; a power of 2 */
+private static final int ZZ_KEY_TABLE_SIZE = 1024;
+
+/** keys longer than this are never interned */
+private static final int ZZ_KEY_MAX_LENGTH = 64;
+
+/** table of interned keys, indexed by hash; allocated the first time
+    interning is enabled */
+private String[] zzKeys;
+
+/** whether keys are interned */
+private boolean zzInternKeys;
+
+/** whether the next string token is an object key */
+private boolean zzKey;
+
+
+/**
+ * Sets whether the strings returned as object keys are interned. When
+ * they are, keys are looked up in a bounded table of the keys seen
+ * recently by this scanner, which is kept across documents; a key
+ * found in the table is returned without creating a new String.
+ *
+ * @param intern true to intern keys
+ */
+public void yyinternKeys(boolean intern) {
+  zzInternKeys = intern;
+  if (intern && zzKeys == null) {
+    zzKeys = new String[ZZ_KEY_TABLE_SIZE];
+  }
+}
+
+/**
+ * Tells the scanner whether the next string it returns is an object
+ * key. This is set by the parser before each call to yylex().
+ *
+ * @param key true if the next string is a key
+ */
+public void yykey(boolean key) {
+  zzKey = key;
+}
+
+/**
+ * Appends a character to the string being read.
+ */
+private void zzAppend(char c) {
+  if (zzCharsLength == zzChars.length)
+    zzChars = java.util.Arrays.copyOf(zzChars, zzCharsLength * 2);
+  zzChars[zzCharsLength++] = c;
+}
+
+/**
+ * Appends the text just matched to the string being read. When this
+ * text is the whole string, which is the case of strings without
+ * escape sequences, the value is instead created directly from
+ * zzBuffer, without copying the characters to zzChars.
+ */
+private void zzAppendText() {
+  int len = zzMarkedPos - zzStartRead;
+  if (zzCharsLength == 0 && zzMarkedPos < zzEndRead && zzBuffer[zzMarkedPos] == '"') {
+    // The closing quote follows and is already in the buffer
+    zzStringValue = zzString(zzBuffer, zzStartRead, len);
+    zzSliced = true;
+    return;
+  }
+  if (zzCharsLength + len > zzChars.length)
+    zzChars = java.util.Arrays.copyOf(zzChars, Math.max(zzChars.length * 2, zzCharsLength + len));
+  System.arraycopy(zzBuffer, zzStartRead, zzChars, zzCharsLength, len);
+  zzCharsLength += len;
+}
+
+/**
+ * Appends the character of the Unicode escape sequence just matched to
+ * the string being read.
+ */
+private void zzAppendUnicode() {
+  int ch = 0;
+  for (int i = zzStartRead + 2; i < zzMarkedPos; i++)
+    ch = (ch << 4) | Character.digit(zzBuffer[i], 16);
+  zzAppend((char) ch);
+}
+
+/**
+ * Creates the String for the string token just read.
+ */
+private String zzString() {
+  if (zzSliced)
+    return zzStringValue;
+  return zzString(zzChars, 0, zzCharsLength);
+}
+
+/**
+ * Creates a String from a range of characters, interning it if it is
+ * an object key.
+ */
+private String zzString(char[] chars, int offset, int len) {
+  if (len == 0)
+    return "";
+  if (!zzKey || !zzInternKeys || len > ZZ_KEY_MAX_LENGTH)
+    return new String(chars, offset, len);
+  int h = 0;
+  for (int i = 0; i < len; i++)
+    h = 31 * h + chars[offset + i];
+  int slot = (h ^ (h >>> 16)) & (ZZ_KEY_TABLE_SIZE - 1);
+  String key = zzKeys[slot];
+  if (key != null && key.length() == len) {
+    int i = 0;
+    while (i < len && key.charAt(i) == chars[offset + i])
+      i++;
+    if (i == len)
+      return key;
+  }
+  key = new String(chars, offset, len);
+  zzKeys[slot] = key;
+  return key;
+}
+
+/** the type of the current token, one of the Yytoken.TYPE_* constants */
+private int zzTokenType = Yytoken.TYPE_EOF;
+
+/** the kind of the current value token, one of the Yytoken.VALUE_*
+    constants */
+private int zzValueKind;
+
+/** the value of the current token, if it is a string */
+private String zzStringValue;
+
+/** the value of the current token, if it is an integer */
+private long zzLongValue;
+
+/** the value of the current token, if it is a decimal number */
+private double zzDoubleValue;
+
+/** the value of the current token, if it is a Boolean */
+private boolean zzBooleanValue;
+
+/** the position of the first character of the current token */
+private long zzTokenStart;
+
+/** the position following the last character of the current token */
+private long zzTokenEnd;
+
+/** the position of the quote that opens the string being read */
+private long zzStringStart;
+
+/** powers of 10 that are exactly representable as doubles */
+private static final double[] ZZ_POW10 = {
+  1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+  1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+};
+
+/**
+ * Gets the type of the token read by the last call to yynext().
+ *
+ * @return one of the Yytoken.TYPE_* constants
+ */
+public int yytype() {
+  return zzTokenType;
+}
+
+/**
+ * Gets the kind of value of the current token, if it is of type
+ * Yytoken.TYPE_VALUE.
+ *
+ * @return one of the Yytoken.VALUE_* constants
+ */
+public int yyvaluekind() {
+  return zzValueKind;
+}
+
+/**
+ * Gets the value of the current token, if it is a string.
+ */
+public String yystring() {
+  return zzStringValue;
+}
+
+/**
+ * Gets the value of the current token, if it is an integer.
+ */
+public long yylong() {
+  return zzLongValue;
+}
+
+/**
+ * Gets the value of the current token, if it is a decimal number.
+ */
+public double yydouble() {
+  return zzDoubleValue;
+}
+
+/**
+ * Gets the value of the current token, if it is a Boolean.
+ */
+public boolean yyboolean() {
+  return zzBooleanValue;
+}
+
+/**
+ * Gets the value of the current token as an object, as found in the
+ * tokens returned by yylex(). Numbers are boxed by this method.
+ *
+ * @return a String, Long, Double or Boolean, or null
+ */
+public Object yyvalue() {
+  if (zzTokenType != Yytoken.TYPE_VALUE)
+    return null;
+  switch (zzValueKind) {
+    case Yytoken.VALUE_STRING:
+      return zzStringValue;
+    case Yytoken.VALUE_LONG:
+      return Long.valueOf(zzLongValue);
+    case Yytoken.VALUE_DOUBLE:
+      return Double.valueOf(zzDoubleValue);
+    case Yytoken.VALUE_BOOLEAN:
+      return Boolean.valueOf(zzBooleanValue);
+    default:
+      return null;
+  }
+}
+
+/**
+ * Gets the position of the first character of the current token.
+ */
+public long yystart() {
+  return zzTokenStart;
+}
+
+/**
+ * Gets the position following the last character of the current token.
+ */
+public long yyend() {
+  return zzTokenEnd;
+}
+
+/**
+ * Records the current token, which spans the text just matched.
+ *
+ * @param type the type of the token
+ * @return the type
+ */
+private int zzToken(int type) {
+  zzTokenType = type;
+  zzTokenStart = yychar;
+  zzTokenEnd = yychar + zzMarkedPos - zzStartRead;
+  return type;
+}
+
+/**
+ * Records the current token as a value of some kind.
+ *
+ * @param kind the kind of value
+ * @return Yytoken.TYPE_VALUE
+ */
+private int zzValue(int kind) {
+  zzValueKind = kind;
+  return zzToken(Yytoken.TYPE_VALUE);
+}
+
+/**
+ * Parses the integer just matched, without creating a String. Only
+ * integers that do not fit in a long are handed to Long.parseLong(),
+ * which throws a NumberFormatException.
+ */
+private long zzParseLong() {
+  char[] buf = zzBuffer;
+  int pos = zzStartRead;
+  int end = zzMarkedPos;
+  boolean negative = buf[pos] == '-';
+  if (negative)
+    pos++;
+  int digits = end - pos;
+  if (digits > 19)
+    return Long.parseLong(yytext());
+  long value = 0;
+  while (pos < end)
+    value = value * 10 + (buf[pos++] - '0');
+  if (value < 0 && (!negative || value != Long.MIN_VALUE)) {
+    /* 19 digits that overflow; the magnitude still fits in 64 bits
+       unsigned, so the overflow shows as a negative value */
+    return Long.parseLong(yytext());
+  }
+  return negative ? -value : value;
+}
+
+/**
+ * Parses the decimal number just matched, without creating a String.
+ * The significant digits are accumulated in a long; the value is then
+ * computed exactly with a single floating-point operation when the
+ * digits fit in 53 bits and the exponent is small, and otherwise with
+ * the Eisel-Lemire algorithm. Only numbers with more than 19
+ * significant digits or a huge exponent, and the rare cases that
+ * Eisel-Lemire cannot decide, are handed to Double.parseDouble().
+ */
+private double zzParseDouble() {
+  char[] buf = zzBuffer;
+  int pos = zzStartRead;
+  int end = zzMarkedPos;
+  boolean negative = buf[pos] == '-';
+  if (negative)
+    pos++;
+  long mantissa = 0;
+  int digits = 0;
+  int exponent = 0;
+  boolean fraction = false;
+  while (pos < end) {
+    char c = buf[pos];
+    if (c == '.') {
+      fraction = true;
+    }
+    else if (c >= '0' && c <= '9') {
+      if (mantissa != 0 || c != '0') {
+        if (++digits > 19)
+          return Double.parseDouble(yytext());
+        mantissa = mantissa * 10 + (c - '0');
+      }
+      if (fraction)
+        exponent--;
+    }
+    else
+      break;
+    pos++;
+  }
+  if (pos < end) {
+    /* exponent part */
+    pos++;
+    boolean negativeExp = false;
+    if (buf[pos] == '-') {
+      negativeExp = true;
+      pos++;
+    }
+    else if (buf[pos] == '+')
+      pos++;
+    int e = 0;
+    while (pos < end) {
+      e = e * 10 + (buf[pos++] - '0');
+      if (e > 1000)
+        return Double.parseDouble(yytext());
+    }
+    exponent += negativeExp ? -e : e;
+  }
+  double value;
+  if (mantissa == 0)
+    value = 0;
+  else if (mantissa > 0 && mantissa <= (1L << 53) && exponent > -ZZ_POW10.length && exponent < ZZ_POW10.length) {
+    /* both operands are exact, so the result is correctly rounded */
+    if (exponent >= 0)
+      value = mantissa * ZZ_POW10[exponent];
+    else
+      value = mantissa / ZZ_POW10[-exponent];
+  }
+  else {
+    value = zzEiselLemire(mantissa, exponent);
+    if (value != value)
+      return Double.parseDouble(yytext());
+  }
+  return negative ? -value : value;
+}
+
+/** the smallest power of 10 for which w * 10^q can be nonzero */
+private static final int ZZ_MIN_POW10_EXP = -342;
+
+/** the largest power of 10 for which w * 10^q can be finite */
+private static final int ZZ_MAX_POW10_EXP = 308;
+
+/**
+ * Holds the 128-bit approximations of the powers of 5 used by
+ * zzEiselLemire(). The table is computed the first time it is needed,
+ * so that documents without long decimals never pay for it.
+ */
+private static final class ZzPowersOfFive {
+  /** for each q from ZZ_MIN_POW10_EXP to ZZ_MAX_POW10_EXP, the high and
+      low halves of 5^q, normalized so that its most significant bit is
+      bit 127; negative powers are rounded up */
+  static final long[] TABLE = compute();
+
+  private static long[] compute() {
+    java.math.BigInteger one = java.math.BigInteger.ONE;
+    java.math.BigInteger five = java.math.BigInteger.valueOf(5);
+    long[] table = new long[2 * (ZZ_MAX_POW10_EXP - ZZ_MIN_POW10_EXP + 1)];
+    int i = 0;
+    for (int q = ZZ_MIN_POW10_EXP; q <= ZZ_MAX_POW10_EXP; q++) {
+      java.math.BigInteger power5 = five.pow(Math.abs(q));
+      java.math.BigInteger c;
+      if (q < 0) {
+        int z = power5.bitLength();
+        int b = q >= -27 ? z + 127 : 2 * z + 128;
+        c = one.shiftLeft(b).divide(power5).add(one);
+      }
+      else
+        c = power5;
+      int shift = c.bitLength() - 128;
+      c = shift > 0 ? c.shiftRight(shift) : c.shiftLeft(-shift);
+      table[i++] = c.shiftRight(64).longValue();
+      table[i++] = c.longValue();
+    }
+    return table;
+  }
+}
+
+/**
+ * Computes the double nearest to w * 10^q, where w is a nonzero
+ * unsigned 64-bit integer, using the algorithm of Eisel and Lemire
+ * (Lemire, "Number Parsing at a Gigabyte per Second", 2021).
+ *
+ * @return the double, or NaN in the rare cases where the 128-bit
+ *   approximation is not precise enough to decide the rounding
+ */
+private static double zzEiselLemire(long w, int q) {
+  if (q < ZZ_MIN_POW10_EXP)
+    return 0;
+  if (q > ZZ_MAX_POW10_EXP)
+    return Double.POSITIVE_INFINITY;
+  int lz = Long.numberOfLeadingZeros(w);
+  w <<= lz;
+  long[] pow5 = ZzPowersOfFive.TABLE;
+  int index = 2 * (q - ZZ_MIN_POW10_EXP);
+  long hi = zzMultiplyHigh(w, pow5[index]);
+  long lo = w * pow5[index];
+  if ((hi & 0x1FF) == 0x1FF) {
+    /* the bits below the 55 we need are all ones, so the truncated
+       part of the power of 5 could carry into them */
+    long hi2 = zzMultiplyHigh(w, pow5[index + 1]);
+    lo += hi2;
+    if (lo + Long.MIN_VALUE < hi2 + Long.MIN_VALUE)
+      hi++;
+  }
+  if (lo == -1L && (q < -27 || q > 55))
+    return Double.NaN;
+  int upperbit = (int) (hi >>> 63);
+  long mantissa = hi >>> (upperbit + 9);
+  int power2 = (((152170 + 65536) * q) >> 16) + 63 + upperbit - lz + 1023;
+  if (power2 <= 0) {
+    /* subnormal */
+    if (-power2 + 1 >= 64)
+      return 0;
+    mantissa >>>= -power2 + 1;
+    mantissa += mantissa & 1;
+    mantissa >>>= 1;
+    power2 = mantissa < (1L << 52) ? 0 : 1;
+    return Double.longBitsToDouble(((long) power2 << 52) | (mantissa & ~(1L << 52)));
+  }
+  if ((lo == 0 || lo == 1) && q >= -4 && q <= 23 && (mantissa & 3) == 1
+      && (mantissa << (upperbit + 9)) == hi) {
+    /* exactly halfway between two doubles: round to even */
+    mantissa &= ~1L;
+  }
+  mantissa += mantissa & 1;
+  mantissa >>>= 1;
+  if (mantissa >= (2L << 52)) {
+    mantissa = 1L << 52;
+    power2++;
+  }
+  if (power2 >= 0x7FF)
+    return Double.POSITIVE_INFINITY;
+  return Double.longBitsToDouble(((long) power2 << 52) | (mantissa & ~(1L << 52)));
+}
+
+/**
+ * Computes the high 64 bits of the unsigned 128-bit product of x and y.
+ */
+private static long zzMultiplyHigh(long x, long y) {
+  long x0 = x & 0xFFFFFFFFL;
+  long x1 = x >>> 32;
+  long y0 = y & 0xFFFFFFFFL;
+  long y1 = y >>> 32;
+  long p01 = x0 * y1;
+  long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+  return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+}
+
+/** supplies the buffers that follow zzBytes, if the input is split
+    into several buffers */
+private ByteSource zzByteSource;
+
+/**
+ * Supplies UTF-8 input to the scanner as a sequence of buffers, such as
+ * successive windows mapped from a file. A buffer may only end in the
+ * middle of a multi-byte sequence if it is the last one.
+ */
+public static interface ByteSource {
+  /**
+   * Gets the next buffer of input. The scanner reads the bytes between
+   * its position and its limit, and advances its position.
+   *
+   * @return the buffer, or null if there is no more input
+   * @exception   java.io.IOException  if the input cannot be obtained
+   */
+  public java.nio.ByteBuffer nextBytes() throws java.io.IOException;
+}
+
+/**
+ * Thrown by a ByteSource when the next buffer of input is not available
+ * yet, although the input has not ended. The scanner then rewinds to
+ * the beginning of the token it was reading, and propagates the
+ * exception; calling yynext() again, once the source has more input,
+ * scans that token again from its first character. The characters of a
+ * string read so far are kept. This does not apply to
+ * yyskipContainer(), which cannot be resumed.
+ */
+public static class InputPendingException extends java.io.IOException {
+  private static final long serialVersionUID = 1L;
+
+  public InputPendingException() {
+    super("More input is needed");
+  }
+
+  /**
+   * Does not fill in the stack trace, since this exception is thrown
+   * routinely, each time the available input is exhausted.
+   */
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+}
+
+/**
+ * Returns the position of the beginning of the current token.
+ */
+public long getPosition(){
 	return yychar;
 }
 
+/**
+ * Skips the input up to and including the brace or bracket that closes
+ * the object or array opened by the last token returned by yylex().
+ * The characters in between are not turned into tokens: string
+ * delimiters and escapes are tracked so that braces and brackets inside
+ * strings are ignored, but the skipped text is otherwise not validated.
+ *
+ * @exception   java.io.IOException  if any I/O-Error occurs
+ * @exception   ParseException       if the input ends before the
+ *                                   container is closed
+ */
+public void yyskipContainer() throws java.io.IOException, ParseException {
+  int depth = 1;
+  boolean inString = false;
+  boolean escaped = false;
+  int pos = zzMarkedPos;
+  while (true) {
+    if (pos >= zzEndRead) {
+      /* everything read so far can be discarded */
+      yychar+= pos-zzStartRead;
+      zzStartRead = zzCurrentPos = zzMarkedPos = pos;
+      if (zzAtEOF || zzRefill()) {
+        zzAtEOF = true;
+        throw new ParseException(yychar, ParseException.ERROR_UNEXPECTED_TOKEN, new Yytoken(Yytoken.TYPE_EOF, null));
+      }
+      pos = zzMarkedPos;
+      continue;
+    }
+    char c = zzBuffer[pos++];
+    if (inString) {
+      if (escaped)
+        escaped = false;
+      else if (c == '\\')
+        escaped = true;
+      else if (c == '"')
+        inString = false;
+    }
+    else if (c == '"')
+      inString = true;
+    else if (c == '{' || c == '[')
+      depth++;
+    else if ((c == '}' || c == ']') && --depth == 0)
+      break;
+  }
+  zzMarkedPos = pos;
+}
+
+/**
+ * Resets the scanner to read UTF-8 encoded bytes from a buffer, from
+ * its current position up to its limit. The position of the buffer is
+ * advanced as bytes are decoded.
+ *
+ * @param bytes the new input
+ */
+public final void yyreset(java.nio.ByteBuffer bytes) {
+  yyreset((java.io.Reader) null);
+  zzBytes = bytes;
+}
+
+/**
+ * Resets the scanner to read UTF-8 encoded bytes from a sequence of
+ * buffers. Each buffer is requested from the source once the previous
+ * one has been entirely decoded.
+ *
+ * @param source the new input
+ */
+public final void yyreset(ByteSource source) {
+  yyreset((java.io.Reader) null);
+  zzBytes = java.nio.ByteBuffer.allocate(0);
+  zzByteSource = source;
+}
+
+/**
+ * Drops the input, so that a scanner kept between documents no longer
+ * refers to it, and shrinks the buffers that grew beyond ZZ_BUFFERSIZE
+ * chars while reading long tokens. The scanner must be reset with a
+ * new input before it is used again.
+ */
+public final void yyrelease() {
+  yyreset((java.io.Reader) null);
+  zzStringValue = null;
+  if (zzBuffer.length > ZZ_BUFFERSIZE)
+    zzBuffer = new char[ZZ_BUFFERSIZE];
+  if (zzChars.length > ZZ_BUFFERSIZE)
+    zzChars = new char[64];
+  if (zzByteChunk != null && zzByteChunk.length > ZZ_BUFFERSIZE)
+    zzByteChunk = null;
+}
+
+/**
+ * Decodes UTF-8 bytes from zzBytes into a char array. Malformed or
+ * truncated sequences are replaced by U+FFFD, like a Reader would.
+ *
+ * @param dst the destination array
+ * @param off the first position to write to; at least two chars
+ *            must be available from there
+ * @param len the maximum number of chars to write
+ * @return the number of chars written, or -1 at the end of input
+ */
+private int zzDecode(char[] dst, int off, int len) {
+  java.nio.ByteBuffer in = zzBytes;
+  int remaining = in.remaining();
+  if (remaining == 0)
+    return -1;
+  byte[] src;
+  int sp, sl;
+  boolean last;
+  if (in.hasArray()) {
+    src = in.array();
+    sp = in.arrayOffset() + in.position();
+    sl = sp + remaining;
+    last = true;
+  }
+  else {
+    // A char never takes less than one byte: len + 3 bytes are enough
+    // to fill the destination and complete the last sequence
+    int n = Math.min(remaining, len + 3);
+    if (zzByteChunk == null || zzByteChunk.length < n)
+      zzByteChunk = new byte[n];
+    in.get(zzByteChunk, 0, n);
+    src = zzByteChunk;
+    sp = 0;
+    sl = n;
+    last = n == remaining;
+  }
+  int start = sp;
+  int dp = off;
+  int dl = off + len;
+  while (dp < dl && sp < sl) {
+    int b = src[sp];
+    if (b >= 0) {
+      dst[dp++] = (char) b;
+      sp++;
+      continue;
+    }
+    int extra, cp, min;
+    if ((b & 0xE0) == 0xC0) {
+      extra = 1; cp = b & 0x1F; min = 0x80;
+    }
+    else if ((b & 0xF0) == 0xE0) {
+      extra = 2; cp = b & 0x0F; min = 0x800;
+    }
+    else if ((b & 0xF8) == 0xF0) {
+      extra = 3; cp = b & 0x07; min = 0x10000;
+    }
+    else {
+      dst[dp++] = '\uFFFD';
+      sp++;
+      continue;
+    }
+    if (sp + extra >= sl && !last)
+      break; // the rest of the sequence is in the next chunk
+    int k = 1;
+    while (k <= extra && sp + k < sl && (src[sp + k] & 0xC0) == 0x80) {
+      cp = (cp << 6) | (src[sp + k] & 0x3F);
+      k++;
+    }
+    if (k <= extra || cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) {
+      dst[dp++] = '\uFFFD';
+      sp++;
+      continue;
+    }
+    if (cp >= 0x10000) {
+      if (dp + 1 >= dl)
+        break;
+      cp -= 0x10000;
+      dst[dp++] = (char) (0xD800 | (cp >> 10));
+      dst[dp++] = (char) (0xDC00 | (cp & 0x3FF));
+    }
+    else {
+      dst[dp++] = (char) cp;
+    }
+    sp += extra + 1;
+  }
+  if (in.hasArray())
+    in.position(in.position() + (sp - start));
+  else
+    in.position(in.position() - (sl - sp));
+  return dp - off;
+}
+
 
 
   /**
@@ -281,7 +999,7 @@ int getPosition(){
    *
    * @param   in  the java.io.Reader to read input from.
    */
-  Yylex(java.io.Reader in) {
+  public Yylex(java.io.Reader in) {
     this.zzReader = in;
   }
 
@@ -291,7 +1009,7 @@ int getPosition(){
    *
    * @param   in  the java.io.Inputstream to read input from.
    */
-  Yylex(java.io.InputStream in) {
+  public Yylex(java.io.InputStream in) {
     this(new java.io.InputStreamReader(in));
   }
 
@@ -344,6 +1062,40 @@ int getPosition(){
       zzBuffer = newBuffer;
     }
 
+    /* decode directly from the byte buffer, if any */
+    if (zzBytes != null) {
+      if (zzBuffer.length - zzEndRead < 2) {
+        /* make room for a surrogate pair */
+        char newBuffer[] = new char[zzBuffer.length*2];
+        System.arraycopy(zzBuffer, 0, newBuffer, 0, zzBuffer.length);
+        zzBuffer = newBuffer;
+      }
+      int numDecoded = zzDecode(zzBuffer, zzEndRead, zzBuffer.length-zzEndRead);
+      while (numDecoded < 0 && zzByteSource != null) {
+        /* move on to the next buffer of the sequence */
+        java.nio.ByteBuffer next;
+        try {
+          next = zzByteSource.nextBytes();
+        }
+        catch (InputPendingException e) {
+          /* rewind to the beginning of the current token */
+          zzCurrentPos = zzMarkedPos = zzStartRead;
+          throw e;
+        }
+        if (next == null) {
+          zzByteSource = null;
+          break;
+        }
+        zzBytes = next;
+        numDecoded = zzDecode(zzBuffer, zzEndRead, zzBuffer.length-zzEndRead);
+      }
+      if (numDecoded > 0) {
+        zzEndRead+= numDecoded;
+        return false;
+      }
+      return true;
+    }
+
     /* finally: fill the buffer with new input */
     int numRead = zzReader.read(zzBuffer, zzEndRead,
                                             zzBuffer.length-zzEndRead);
@@ -392,11 +1144,14 @@ int getPosition(){
    */
   public final void yyreset(java.io.Reader reader) {
     zzReader = reader;
+    zzBytes = null;
+    zzByteSource = null;
     zzAtBOL  = true;
     zzAtEOF  = false;
     zzEndRead = zzStartRead = 0;
     zzCurrentPos = zzMarkedPos = 0;
-    yyline = yychar = yycolumn = 0;
+    yyline = yycolumn = 0;
+    yychar = 0;
     zzLexicalState = YYINITIAL;
   }
 
@@ -498,10 +1253,29 @@ int getPosition(){
    * Resumes scanning until the next regular expression is matched,
    * the end of input is encountered or an I/O-Error occurs.
    *
-   * @return      the next token
+   * @return      the next token, or null at the end of the input
    * @exception   java.io.IOException  if any I/O-Error occurs
    */
   public Yytoken yylex() throws java.io.IOException, ParseException {
+    int type = yynext();
+    if (type == Yytoken.TYPE_EOF)
+      return null;
+    return new Yytoken(type, yyvalue());
+  }
+
+
+  /**
+   * Resumes scanning until the next token is read, like yylex(), but
+   * without creating a Yytoken. The token is described by yytype(),
+   * yystart() and yyend(), and its value by yyvaluekind() and the
+   * accessor for that kind of value; no object is created for
+   * structural tokens, numbers, Booleans and null.
+   *
+   * @return      the type of the token, one of the Yytoken.TYPE_*
+   *              constants; Yytoken.TYPE_EOF at the end of the input
+   * @exception   java.io.IOException  if any I/O-Error occurs
+   */
+  public int yynext() throws java.io.IOException, ParseException {
     int zzInput;
     int zzAction;
 
@@ -574,39 +1348,39 @@ int getPosition(){
 
       switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
         case 11: 
-          { sb.append(yytext());
+          { zzAppendText();
           }
         case 25: break;
         case 4: 
-          { sb = null; sb = new StringBuffer(); yybegin(STRING_BEGIN);
+          { zzCharsLength = 0; zzSliced = false; zzStringStart = yychar; yybegin(STRING_BEGIN);
           }
         case 26: break;
         case 16: 
-          { sb.append('\b');
+          { zzAppend('\b');
           }
         case 27: break;
         case 6: 
-          { return new Yytoken(Yytoken.TYPE_RIGHT_BRACE,null);
+          { return zzToken(Yytoken.TYPE_RIGHT_BRACE);
           }
         case 28: break;
         case 23: 
-          { Boolean val=Boolean.valueOf(yytext()); return new Yytoken(Yytoken.TYPE_VALUE, val);
+          { zzBooleanValue = zzBuffer[zzStartRead] == 't'; return zzValue(Yytoken.VALUE_BOOLEAN);
           }
         case 29: break;
         case 22: 
-          { return new Yytoken(Yytoken.TYPE_VALUE, null);
+          { return zzValue(Yytoken.VALUE_NULL);
           }
         case 30: break;
         case 13: 
-          { yybegin(YYINITIAL);return new Yytoken(Yytoken.TYPE_VALUE, sb.toString());
+          { yybegin(YYINITIAL); zzStringValue = zzString(); zzValue(Yytoken.VALUE_STRING); zzTokenStart = zzStringStart; return Yytoken.TYPE_VALUE;
           }
         case 31: break;
         case 12: 
-          { sb.append('\\');
+          { zzAppend('\\');
           }
         case 32: break;
         case 21: 
-          { Double val=Double.valueOf(yytext()); return new Yytoken(Yytoken.TYPE_VALUE, val);
+          { zzDoubleValue = zzParseDouble(); return zzValue(Yytoken.VALUE_DOUBLE);
           }
         case 33: break;
         case 1: 
@@ -614,61 +1388,55 @@ int getPosition(){
           }
         case 34: break;
         case 8: 
-          { return new Yytoken(Yytoken.TYPE_RIGHT_SQUARE,null);
+          { return zzToken(Yytoken.TYPE_RIGHT_SQUARE);
           }
         case 35: break;
         case 19: 
-          { sb.append('\r');
+          { zzAppend('\r');
           }
         case 36: break;
         case 15: 
-          { sb.append('/');
+          { zzAppend('/');
           }
         case 37: break;
         case 10: 
-          { return new Yytoken(Yytoken.TYPE_COLON,null);
+          { return zzToken(Yytoken.TYPE_COLON);
           }
         case 38: break;
         case 14: 
-          { sb.append('"');
+          { zzAppend('"');
           }
         case 39: break;
         case 5: 
-          { return new Yytoken(Yytoken.TYPE_LEFT_BRACE,null);
+          { return zzToken(Yytoken.TYPE_LEFT_BRACE);
           }
         case 40: break;
         case 17: 
-          { sb.append('\f');
+          { zzAppend('\f');
           }
         case 41: break;
         case 24: 
-          { try{
-														int ch=Integer.parseInt(yytext().substring(2),16);
-														sb.append((char)ch);
-													}
-													catch(Exception e){
-														throw new ParseException(yychar, ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
-													}
+          { zzAppendUnicode();
           }
         case 42: break;
         case 20: 
-          { sb.append('\t');
+          { zzAppend('\t');
           }
         case 43: break;
         case 7: 
-          { return new Yytoken(Yytoken.TYPE_LEFT_SQUARE,null);
+          { return zzToken(Yytoken.TYPE_LEFT_SQUARE);
           }
         case 44: break;
         case 2: 
-          { Long val=Long.valueOf(yytext()); return new Yytoken(Yytoken.TYPE_VALUE, val);
+          { zzLongValue = zzParseLong(); return zzValue(Yytoken.VALUE_LONG);
           }
         case 45: break;
         case 18: 
-          { sb.append('\n');
+          { zzAppend('\n');
           }
         case 46: break;
         case 9: 
-          { return new Yytoken(Yytoken.TYPE_COMMA,null);
+          { return zzToken(Yytoken.TYPE_COMMA);
           }
         case 47: break;
         case 3: 
@@ -678,7 +1446,7 @@ int getPosition(){
         default: 
           if (zzInput == YYEOF && zzStartRead == zzCurrentPos) {
             zzAtEOF = true;
-            return null;
+            return zzToken(Yytoken.TYPE_EOF);
           } 
           else {
             zzScanError(ZZ_NO_MATCH);
@@ -17,6 +17,12 @@ public class Yytoken {
 	public static final int TYPE_COLON=6;
 	public static final int TYPE_EOF=-1;//end of file
 	
+	public static final int VALUE_NULL=0;//kinds of primitive values, see Yylex.yyvaluekind()
+	public static final int VALUE_STRING=1;
+	public static final int VALUE_LONG=2;
+	public static final int VALUE_DOUBLE=3;
+	public static final int VALUE_BOOLEAN=4;
+	
 	public int type=0;
 	public Object value=null;
 	
@@ -0,0 +1,120 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactMapTest
+{
+	@Test
+	public void testSmall1()
+	{
+		CompactMap<String,Integer> map = new CompactMap<String,Integer>();
+		assertTrue(map.isEmpty());
+		for (int i = 0; i < 5; i++)
+		{
+			assertNull(map.put("k" + i, i));
+		}
+		assertEquals(Integer.valueOf(2), map.put("k2", 20));
+		assertNull(map.put(null, -1));
+		assertEquals(6, map.size());
+		assertEquals(Integer.valueOf(20), map.get("k2"));
+		assertEquals(Integer.valueOf(-1), map.get(null));
+		assertTrue(map.containsKey("k4"));
+		assertFalse(map.containsKey("k5"));
+		assertEquals(Integer.valueOf(1), map.remove("k1"));
+		assertNull(map.remove("k1"));
+		assertEquals("{k0=0, k2=20, k3=3, k4=4, null=-1}", map.toString());
+	}
+
+	@Test
+	public void testPromote1()
+	{
+		CompactMap<String,Integer> map = new CompactMap<String,Integer>();
+		Map<String,Integer> expected = new HashMap<String,Integer>();
+		for (int i = 0; i < 3 * CompactMap.MAX_ARRAY_SIZE; i++)
+		{
+			map.put("k" + i, i);
+			expected.put("k" + i, i);
+			assertEquals(expected, map);
+			assertEquals(map, expected);
+			assertEquals(expected.hashCode(), map.hashCode());
+		}
+		assertNotNull(map.m_hash);
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertNull(map.get("k0"));
+	}
+
+	@Test
+	public void testOrdered1()
+	{
+		CompactMap<String,Integer> map = new CompactMap<String,Integer>(true);
+		StringBuilder expected = new StringBuilder();
+		for (int i = 3 * CompactMap.MAX_ARRAY_SIZE; i > 0; i--)
+		{
+			map.put("k" + i, i);
+			expected.append(expected.length() > 0 ? ", " : "").append("k").append(i).append("=").append(i);
+		}
+		assertTrue(map.isOrdered());
+		assertEquals("{" + expected + "}", map.toString());
+	}
+
+	@Test
+	public void testIterator1()
+	{
+		CompactMap<String,Integer> map = new CompactMap<String,Integer>();
+		for (int i = 0; i < 6; i++)
+		{
+			map.put("k" + i, i);
+		}
+		Iterator<Map.Entry<String,Integer>> it = map.entrySet().iterator();
+		while (it.hasNext())
+		{
+			Map.Entry<String,Integer> e = it.next();
+			if (e.getValue() % 2 == 0)
+			{
+				it.remove();
+			}
+			else
+			{
+				e.setValue(e.getValue() * 10);
+			}
+		}
+		assertEquals("{k1=10, k3=30, k5=50}", map.toString());
+		map.keySet().remove("k3");
+		assertEquals("[50, 10]", "[" + map.get("k5") + ", " + map.values().iterator().next() + "]");
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void testJsonMap1() throws Exception
+	{
+		String s = "{\"z\":1,\"y\":2,\"x\":{\"c\":[1,2],\"b\":null,\"a\":true}}";
+		JsonElement e = new JsonParser().parse(s);
+		assertTrue(((JsonMap) e).m_map instanceof CompactMap);
+		// Small maps keep their keys in insertion order
+		assertEquals(s, e.toString());
+	}
+}
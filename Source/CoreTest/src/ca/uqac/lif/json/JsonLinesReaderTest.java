@@ -0,0 +1,116 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+public class JsonLinesReaderTest
+{
+	@Test
+	public void testLines1() throws IOException
+	{
+		String s = "{\"a\" : 1}\r\n\n[1, \"é\"]\n  \nnull\n\"x\"";
+		JsonLinesReader r = new JsonLinesReader(new ByteArrayInputStream(s.getBytes("UTF-8")));
+		StringBuilder out = new StringBuilder();
+		for (JsonElement e : r)
+		{
+			out.append(e.toString()).append(";");
+		}
+		r.close();
+		assertEquals("{\"a\":1};[1,\"é\"];null;\"x\";", out.toString());
+		assertEquals(6, r.getLineNumber());
+		assertEquals(0, r.getErrorCount());
+		try
+		{
+			r.iterator();
+			fail();
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected: the lines have already been consumed
+		}
+	}
+
+	@Test
+	public void testLinesError1() throws IOException, JsonParseException
+	{
+		String s = "1\n{\"a\" : \n2\n";
+		JsonLinesReader r = new JsonLinesReader(new ByteArrayInputStream(s.getBytes("UTF-8")));
+		assertEquals("1", r.readNext().toString());
+		try
+		{
+			r.readNext();
+			fail();
+		}
+		catch (JsonParseException e)
+		{
+			assertTrue(e.getMessage().startsWith("Line 2"));
+		}
+		assertEquals("2", r.readNext().toString());
+		assertNull(r.readNext());
+		r = new JsonLinesReader(new ByteArrayInputStream(s.getBytes("UTF-8")));
+		int count = 0;
+		while (r.hasNext())
+		{
+			r.next();
+			count++;
+		}
+		assertEquals(2, count);
+		assertEquals(1, r.getErrorCount());
+	}
+
+	@Test
+	public void testLinesLong1() throws IOException, JsonParseException
+	{
+		// Lines longer than the buffer, delivered in small chunks
+		final StringBuilder doc = new StringBuilder();
+		for (int line = 0; line < 3; line++)
+		{
+			doc.append("[");
+			for (int i = 0; i < 30000; i++)
+			{
+				doc.append(i == 0 ? "" : ",").append(i);
+			}
+			doc.append("]\n");
+		}
+		InputStream in = new ByteArrayInputStream(doc.toString().getBytes("UTF-8"))
+		{
+			@Override
+			public synchronized int read(byte[] b, int off, int len)
+			{
+				return super.read(b, off, Math.min(len, 1000));
+			}
+		};
+		JsonLinesReader r = new JsonLinesReader(in);
+		for (int line = 0; line < 3; line++)
+		{
+			JsonList list = (JsonList) r.readNext();
+			assertEquals(30000, list.size());
+			assertEquals(29999, ((JsonNumber) list.get(29999)).longValue());
+		}
+		assertNull(r.readNext());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Checks that a single {@link JsonParser} can be used by many threads
+ * at the same time.
+ */
+public class JsonParserConcurrencyTest
+{
+	protected static final int NUM_THREADS = 8;
+
+	protected static final int NUM_ROUNDS = 500;
+
+	@Test
+	public void testConcurrentParse() throws Exception
+	{
+		final JsonParser parser = new JsonParser();
+		final String[] documents = new String[NUM_THREADS];
+		final String[] expected = new String[NUM_THREADS];
+		for (int i = 0; i < NUM_THREADS; i++)
+		{
+			documents[i] = makeDocument(i);
+			expected[i] = new JsonParser().parse(documents[i]).toString();
+		}
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+		try
+		{
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < NUM_THREADS; i++)
+			{
+				final int id = i;
+				results.add(executor.submit(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws Exception
+					{
+						start.await();
+						int mismatches = 0;
+						for (int round = 0; round < NUM_ROUNDS; round++)
+						{
+							// Each thread alternates between its own document and its neighbour's
+							int doc = (id + round) % NUM_THREADS;
+							JsonElement e = parser.parse(documents[doc]);
+							if (e == null || expected[doc].compareTo(e.toString()) != 0)
+							{
+								mismatches++;
+							}
+						}
+						return mismatches;
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> f : results)
+			{
+				assertEquals(0, f.get().intValue());
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a document whose contents depend on an integer, so that
+	 * documents parsed by different threads are all distinct
+	 * @param id The integer
+	 * @return The document
+	 */
+	protected static String makeDocument(int id)
+	{
+		StringBuilder out = new StringBuilder();
+		out.append("{\"id\" : ").append(id).append(", \"items\" : [");
+		for (int i = 0; i < 20 + id * 5; i++)
+		{
+			if (i > 0)
+			{
+				out.append(",");
+			}
+			out.append("{\"name\" : \"item-").append(id).append("-").append(i)
+			.append("\", \"value\" : ").append(i * 0.5).append(", \"tags\" : [\"a\\\"b\", ")
+			.append(id % 2 == 0).append(", null]}");
+		}
+		out.append("]}");
+		return out.toString();
+	}
+}
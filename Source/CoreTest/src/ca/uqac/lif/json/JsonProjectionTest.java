@@ -0,0 +1,68 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+public class JsonProjectionTest
+{
+	protected static final String s_document = "{\"a\" : {\"b\" : [10, {\"c\" : 1}, 30], \"d\" : \"x\"}, \"e\" : [1, [2, 3]], \"f\" : {\"g\" : null}}";
+
+	@Test
+	public void testProjection1() throws JsonParseException
+	{
+		JsonProjection p = new JsonProjection("a.d", "a.b[1].c", "f");
+		JsonElement full = new JsonParser().parse(s_document);
+		JsonElement e = p.parse(s_document);
+		assertTrue(e instanceof JsonMap);
+		JsonMap m = (JsonMap) e;
+		assertEquals(2, m.size());
+		assertFalse(m.containsKey("e"));
+		JsonList b = (JsonList) JsonPath.get(m, "a.b");
+		assertEquals(2, b.size());
+		assertEquals(JsonNull.instance, b.get(0));
+		for (String path : new String[] {"a.d", "a.b[1].c", "f"})
+		{
+			assertEquals(JsonPath.get(full, path).toString(), JsonPath.get(e, path).toString());
+		}
+	}
+
+	@Test
+	public void testProjection2() throws JsonParseException
+	{
+		JsonProjection p = new JsonProjection("a.b[2]", "a.z", "e[1][0]", "f.g.h");
+		Map<String,JsonElement> values = p.parseValues(s_document);
+		assertEquals(2, values.size());
+		assertEquals(30, ((JsonNumber) values.get("a.b[2]")).numberValue().intValue());
+		assertEquals(2, ((JsonNumber) values.get("e[1][0]")).numberValue().intValue());
+		assertNull(p.parse("[1, 2]"));
+		assertEquals(values, p.getValues(p.parse(s_document.getBytes())));
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testProjectionError1() throws JsonParseException
+	{
+		new JsonProjection("a").parse("{\"a\" : 1, \"b\" : [}");
+	}
+}
@@ -0,0 +1,194 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+
+public class JsonReaderTest
+{
+	@Test
+	public void testEvents1() throws IOException, JsonParseException
+	{
+		JsonReader r = new JsonReader("{\"a\" : [1, 2.5, \"x\"], \"b\" : {\"c\" : true, \"d\" : null}}");
+		assertEquals(JsonReader.START_OBJECT, r.next());
+		assertEquals(1, r.getDepth());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("a", r.getKey());
+		assertEquals(JsonReader.START_ARRAY, r.next());
+		assertEquals(JsonReader.VALUE, r.next());
+		assertTrue(r.isNumber());
+		assertEquals(1, r.getLong());
+		assertEquals(JsonReader.VALUE, r.next());
+		assertEquals(2.5, r.getDouble(), 0);
+		assertEquals(JsonReader.VALUE, r.next());
+		assertEquals("x", r.getString());
+		assertEquals(JsonReader.END_ARRAY, r.next());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("b", r.getKey());
+		assertEquals(JsonReader.START_OBJECT, r.next());
+		assertEquals(2, r.getDepth());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals(JsonReader.VALUE, r.next());
+		assertTrue(r.getBoolean());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("d", r.getKey());
+		assertEquals(JsonReader.VALUE, r.next());
+		assertTrue(r.isNull());
+		assertEquals(JsonReader.END_OBJECT, r.next());
+		assertEquals(JsonReader.END_OBJECT, r.next());
+		assertEquals(0, r.getDepth());
+		assertEquals(JsonReader.END_DOCUMENT, r.next());
+	}
+
+	@Test
+	public void testSkip1() throws IOException, JsonParseException
+	{
+		JsonReader r = new JsonReader("{\"a\" : {\"x\" : [\"]}\\\"\", {}], \"y\" : 3}, \"b\" : 4, \"c\" : [[]]}");
+		assertEquals(JsonReader.START_OBJECT, r.next());
+		assertEquals(JsonReader.KEY, r.next());
+		r.skipValue();
+		assertEquals(JsonReader.END_OBJECT, r.getEvent());
+		assertEquals(1, r.getDepth());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("b", r.getKey());
+		r.skipValue();
+		assertEquals(4, r.getLong());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals(JsonReader.START_ARRAY, r.next());
+		r.skipValue();
+		assertEquals(JsonReader.END_ARRAY, r.getEvent());
+		assertEquals(JsonReader.END_OBJECT, r.next());
+		assertEquals(JsonReader.END_DOCUMENT, r.next());
+	}
+
+	@Test
+	public void testSkip2() throws IOException, JsonParseException
+	{
+		// Skipped value spanning many refills of the lexer's buffer
+		StringBuilder big = new StringBuilder("[{\"skip\" : [");
+		for (int i = 0; i < 10000; i++)
+		{
+			big.append("{\"s\" : \"[{\\\\\" }, ");
+		}
+		big.append("0]}, 42]");
+		JsonReader r = new JsonReader(big.toString().getBytes("UTF-8"));
+		assertEquals(JsonReader.START_ARRAY, r.next());
+		assertEquals(JsonReader.START_OBJECT, r.next());
+		r.skipValue();
+		assertEquals(JsonReader.VALUE, r.next());
+		assertEquals(42, r.getLong());
+		assertEquals(JsonReader.END_ARRAY, r.next());
+		assertEquals(JsonReader.END_DOCUMENT, r.next());
+	}
+
+	@Test
+	public void testReadElement1() throws IOException, JsonParseException
+	{
+		JsonReader r = new JsonReader("{\"a\" : 1, \"b\" : {\"c\" : [1, {\"d\" : 2}]}, \"e\" : 3}");
+		r.next();
+		r.next();
+		r.skipValue();
+		assertEquals(JsonReader.KEY, r.next());
+		JsonElement e = r.readElement();
+		assertEquals("{\"c\":[1,{\"d\":2}]}", e.toString());
+		assertEquals(JsonReader.END_OBJECT, r.getEvent());
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("e", r.getKey());
+		assertEquals(3, ((JsonNumber) r.readElement()).numberValue().intValue());
+		assertEquals(JsonReader.END_OBJECT, r.next());
+		assertEquals(JsonReader.END_DOCUMENT, r.next());
+		r.reset("[true]");
+		assertEquals(JsonReader.START_ARRAY, r.next());
+		assertEquals("[true]", r.readElement().toString());
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testError1() throws IOException, JsonParseException
+	{
+		JsonReader r = new JsonReader("{\"a\" : 1} 2");
+		while (r.next() != JsonReader.END_DOCUMENT)
+		{
+			// Consume
+		}
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void testError2() throws IOException, JsonParseException
+	{
+		JsonReader r = new JsonReader("[{\"a\" : [1, 2]");
+		r.next();
+		r.next();
+		r.skipValue();
+	}
+
+	@Test
+	public void testSeparators1() throws IOException
+	{
+		String[] invalid = {"{\"c\" 2}", "[1 2]", "[1,]", "[,1]", "{,\"a\":1}", "{\"a\":1,}", "{\"a\"::1}", "[1,,2]"};
+		for (String s : invalid)
+		{
+			JsonReader r = new JsonReader(s);
+			try
+			{
+				while (r.next() != JsonReader.END_DOCUMENT)
+				{
+					// Read everything
+				}
+				fail(s);
+			}
+			catch (JsonParseException e)
+			{
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testSeparators2() throws IOException, JsonParseException
+	{
+		// Separators are also checked after a skipped value
+		JsonReader r = new JsonReader("[{\"a\" : [1]} 2]");
+		assertEquals(JsonReader.START_ARRAY, r.next());
+		assertEquals(JsonReader.START_OBJECT, r.next());
+		r.skipValue();
+		try
+		{
+			r.next();
+			fail();
+		}
+		catch (JsonParseException e)
+		{
+			// Expected
+		}
+		r.reset("{\"a\" : {\"b\" : [1]}, \"c\" : 2}");
+		r.next();
+		r.next();
+		r.next();
+		r.skipValue();
+		assertEquals(JsonReader.KEY, r.next());
+		assertEquals("c", r.getKey());
+		assertEquals(JsonReader.VALUE, r.next());
+		assertEquals(JsonReader.END_OBJECT, r.next());
+	}
+}
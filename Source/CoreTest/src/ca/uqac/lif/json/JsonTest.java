@@ -19,9 +19,20 @@ package ca.uqac.lif.json;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -84,6 +95,91 @@ public class JsonTest
 		assertTrue(jm.get("c") instanceof JsonNull);
 	}
 	
+	@Test
+	public void testParserNested1() throws IOException, JsonParseException
+	{
+		JsonElement jse = j_parser.parse("{\"a\" : [1, {\"b\" : \"c\", \"d\" : []}, 2.5], \"e\" : {}}");
+		assertTrue(jse instanceof JsonMap);
+		JsonMap jm = (JsonMap) jse;
+		assertEquals(2, jm.size());
+		JsonList jl = (JsonList) jm.get("a");
+		assertEquals(3, jl.size());
+		assertEquals(1, ((JsonNumber) jl.get(0)).numberValue());
+		JsonMap inner = (JsonMap) jl.get(1);
+		assertEquals("c", inner.getString("b"));
+		assertTrue(((JsonList) inner.get("d")).isEmpty());
+		assertEquals(2.5, ((JsonNumber) jl.get(2)).numberValue());
+		assertTrue(((JsonMap) jm.get("e")).isEmpty());
+	}
+	
+	@Test
+	public void testParserNested2() throws IOException, JsonParseException
+	{
+		JsonElement jse = j_parser.parse("[[1, [2, 3]], [], {\"a\" : [[4], 5]}, [6]]");
+		assertEquals("[[1,[2,3]],[],{\"a\":[[4],5]},[6]]", jse.toString());
+		JsonList jl = (JsonList) jse;
+		assertEquals(4, jl.size());
+		assertEquals(3, ((JsonNumber) ((JsonList) ((JsonList) jl.get(0)).get(1)).get(1)).numberValue());
+	}
+	
+	@Test
+	public void testParserNull1() throws IOException, JsonParseException
+	{
+		assertNull(j_parser.parse("null"));
+	}
+	
+	@Test(expected = JsonParseException.class)
+	public void testParserError1() throws IOException, JsonParseException
+	{
+		j_parser.parse("{\"a\" : [1, 2}");
+	}
+	
+	@Test
+	public void testParserBytes1() throws IOException, JsonParseException
+	{
+		String json = "{\"a\" : \"caf\u00e9 \u65e5\u672c \ud83d\ude00\", \"b\" : [1, 2.5, true]}";
+		byte[] bytes = json.getBytes("UTF-8");
+		String expected = j_parser.parse(json).toString();
+		assertEquals(expected, j_parser.parse(bytes).toString());
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes);
+		direct.flip();
+		assertEquals(expected, j_parser.parse(direct).toString());
+		assertEquals(0, direct.position());
+		JsonMap jm = (JsonMap) j_parser.parse(bytes);
+		assertEquals("caf\u00e9 \u65e5\u672c \ud83d\ude00", jm.getString("a"));
+	}
+	
+	@Test
+	public void testParserBytes2() throws IOException, JsonParseException
+	{
+		// Large enough for the lexer to refill its buffer many times
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 5000; i++)
+		{
+			if (i > 0)
+			{
+				json.append(",");
+			}
+			json.append("{\"k\u00e9").append(i).append("\" : \"\u00e0\u20ac\ud83d\ude00").append(i).append("\"}");
+		}
+		json.append("]");
+		byte[] bytes = ("  " + json.toString()).getBytes("UTF-8");
+		String expected = j_parser.parse(json.toString()).toString();
+		assertEquals(expected, j_parser.parse(bytes, 2, bytes.length - 2).toString());
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes);
+		direct.position(2);
+		assertEquals(expected, j_parser.parse(direct).toString());
+	}
+	
+	@Test
+	public void testParserBytesMalformed() throws IOException, JsonParseException
+	{
+		byte[] bytes = new byte[] {'"', 'a', (byte) 0xC3, '"'};
+		assertEquals("a\ufffd", ((JsonString) j_parser.parse(bytes)).stringValue());
+	}
+	
 	@Test
 	public void testParserBoolean1() throws IOException, JsonParseException
 	{
@@ -193,6 +289,640 @@ public class JsonTest
 		}
 	}
 
+	@Test
+	public void testCompiledPath1() throws IOException, JsonParseException
+	{
+		String json = readPackageFile(this.getClass(), "data/sample-4.json");
+		JsonElement jse = j_parser.parse(json);
+		String path = "children[0].children[1].children[0].children[0].tagname";
+		CompiledJsonPath cp = CompiledJsonPath.compile(path);
+		assertSame(cp, CompiledJsonPath.compile(path));
+		assertEquals(9, cp.length());
+		assertEquals("#CDATA", ((JsonString) cp.evaluate(jse)).stringValue());
+		assertEquals(JsonPath.get(jse, JsonPath.getPathElements(path)), cp.evaluate(jse));
+		assertNull(CompiledJsonPath.compile("children[0].foo.bar").evaluate(jse));
+		assertNull(CompiledJsonPath.compile("children.tagname").evaluate(jse));
+	}
+
+	@Test
+	public void testWriteTo1() throws IOException, JsonParseException
+	{
+		String json = readPackageFile(this.getClass(), "data/sample-8.json");
+		JsonElement jse = j_parser.parse(json);
+		StringBuilder compact = new StringBuilder();
+		jse.writeTo(compact);
+		assertEquals(jse.toString(), compact.toString());
+		StringWriter pretty = new StringWriter();
+		jse.writeTo(pretty, false);
+		assertEquals(jse.toString("", false), pretty.toString());
+	}
+
+	@Test
+	public void testWriteTo2() throws IOException, JsonParseException
+	{
+		JsonMap map = new JsonMap();
+		map.put("a", "caf\u00e9 \"quoted\" \ud83d\ude00\n");
+		JsonList list = new JsonList();
+		list.add(new JsonNumber(1));
+		list.add(JsonNull.instance);
+		map.put("b", list);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		map.writeTo(bos, Charset.forName("UTF-8"));
+		assertEquals(map.toString(), new String(bos.toByteArray(), "UTF-8"));
+		assertEquals(map.toString(), j_parser.parse(bos.toByteArray()).toString());
+	}
+
+	@Test
+	public void testNumberPrimitive1() throws JsonParseException
+	{
+		JsonList list = (JsonList) j_parser.parse("[1, 12345678901, 2.5, -7]");
+		JsonNumber n = (JsonNumber) list.get(0);
+		assertTrue(n.numberValue() instanceof Integer);
+		assertEquals(1L, n.longValue());
+		n = (JsonNumber) list.get(1);
+		assertTrue(n.numberValue() instanceof Long);
+		assertEquals(12345678901L, n.longValue());
+		assertEquals(12345678901d, n.doubleValue(), 0);
+		n = (JsonNumber) list.get(2);
+		assertTrue(n.numberValue() instanceof Double);
+		assertEquals(2.5, n.doubleValue(), 0);
+		assertEquals(2L, n.longValue());
+		assertEquals(new JsonNumber(2.5f).hashCode(), n.hashCode());
+		assertEquals("[1,12345678901,2.5,-7]", list.toString("", true));
+		assertEquals(new JsonNumber(-7), list.get(3));
+		assertEquals(new JsonNumber(-7f), new JsonNumber(-7L).clone());
+		assertTrue(new JsonNumber(1.5f).numberValue() instanceof Float);
+		assertTrue(new JsonNumber(2).compareTo(new JsonNumber(2.5)) < 0);
+	}
+
+	@Test
+	public void testParserFile1() throws IOException, JsonParseException
+	{
+		StringBuilder doc = new StringBuilder("[");
+		for (int i = 0; i < 200; i++)
+		{
+			doc.append(i == 0 ? "" : ",").append("{\"k\u00e9" + i + "\":\"\u20ac\ud83d\ude00 " + i + "\"}");
+		}
+		doc.append("]");
+		File f = File.createTempFile("json", ".json");
+		f.deleteOnExit();
+		FileOutputStream fos = new FileOutputStream(f);
+		fos.write(doc.toString().getBytes("UTF-8"));
+		fos.close();
+		String expected = j_parser.parse(doc.toString()).toString();
+		assertEquals(expected, j_parser.parse(f).toString());
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		try
+		{
+			for (int window = 4; window < 12; window++)
+			{
+				assertEquals(expected, j_parser.parse(new MappedFileSource(raf.getChannel(), window)).toString());
+			}
+		}
+		finally
+		{
+			raf.close();
+		}
+	}
+
+	@Test
+	public void testParserLazy1() throws JsonParseException
+	{
+		String s = "{\"type\" : \"a\", \"b\" : {\"c\" : [1, {\"d\" : \"}]\"}], \"e\" : {}}, \"f\" : [[2], 3]}";
+		JsonMap m = (JsonMap) j_parser.parseLazy(s);
+		assertEquals("a", m.getString("type"));
+		LazyJsonMap b = (LazyJsonMap) m.get("b");
+		LazyJsonList f = (LazyJsonList) m.get("f");
+		assertFalse(b.isMaterialized());
+		assertEquals("}]", ((JsonString) JsonPath.get(m, "b.c[1].d")).stringValue());
+		assertTrue(b.isMaterialized());
+		assertFalse(f.isMaterialized());
+		JsonList f_copy = f.clone();
+		assertEquals(2, f.size());
+		assertEquals(3, ((JsonNumber) f.get(1)).longValue());
+		assertFalse(((LazyJsonList) f_copy).isMaterialized());
+		assertEquals(j_parser.parse(s).toString(), m.toString());
+		assertNull(j_parser.parseLazy("null"));
+		assertEquals("[]", j_parser.parseLazy(" [ ] ").toString());
+	}
+
+	@Test
+	public void testParserLazyError1() throws JsonParseException
+	{
+		JsonMap m = (JsonMap) j_parser.parseLazy("{\"a\" : 1, \"b\" : {\"c\" 2}}");
+		assertEquals(1, m.getInt("a"));
+		try
+		{
+			m.get("b").toString();
+			fail();
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected
+		}
+		try
+		{
+			j_parser.parseLazy("{\"a\" : [1, 2}");
+			fail();
+		}
+		catch (JsonParseException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public void testParserLazyError2() throws JsonParseException
+	{
+		// A container that fails to materialize reports the error on
+		// every access, and not only on the first
+		JsonMap m = (JsonMap) j_parser.parseLazy("{\"b\":[1,2,}, \"c\":{\"k\":}}");
+		JsonList b = (JsonList) m.get("b");
+		JsonMap c = (JsonMap) m.get("c");
+		for (int i = 0; i < 2; i++)
+		{
+			try
+			{
+				b.size();
+				fail();
+			}
+			catch (IllegalStateException e)
+			{
+				// Expected
+			}
+			try
+			{
+				c.toString();
+				fail();
+			}
+			catch (IllegalStateException e)
+			{
+				// Expected
+			}
+		}
+		assertFalse(((LazyJsonList) b).isMaterialized());
+		assertFalse(((LazyJsonMap) c).isMaterialized());
+	}
+
+	@Test
+	public void testParserLazyError3() throws JsonParseException
+	{
+		// The error in a nested container is not seen by parseLazy, but by
+		// the first method that reads the container
+		JsonMap m = (JsonMap) j_parser.parseLazy("{\"x\":[1,}, \"y\":2}");
+		assertEquals(2, m.getInt("y"));
+		JsonElement x = m.get("x");
+		assertTrue(x instanceof LazyJsonList);
+		try
+		{
+			((JsonList) x).isEmpty();
+			fail();
+		}
+		catch (IllegalStateException e)
+		{
+			assertTrue(e.getCause() instanceof JsonParseException);
+		}
+		try
+		{
+			j_parser.parse("{\"x\":[1,}, \"y\":2}");
+			fail();
+		}
+		catch (JsonParseException e)
+		{
+			// Expected
+		}
+	}
+
+	@Test
+	public void testOrderedMaps1() throws JsonParseException, IOException
+	{
+		StringBuilder in = new StringBuilder("{");
+		for (int i = 20; i > 0; i--)
+		{
+			in.append(i < 20 ? "," : "").append("\"k").append(i).append("\":{\"b\":").append(i).append(",\"a\":[]}");
+		}
+		String s = in.append("}").toString();
+		JsonParser parser = new JsonParser();
+		parser.setOrderedMaps(true);
+		JsonMap map = (JsonMap) parser.parse(s);
+		assertTrue(map.isOrdered());
+		assertEquals(s, map.toString());
+		assertEquals(s, map.clone().toString());
+		assertEquals(s, parser.parseLazy(s).toString());
+		JsonReader r = new JsonReader(s);
+		r.setOrderedMaps(true);
+		r.next();
+		assertEquals(s, r.readElement().toString());
+	}
+
+	@Test
+	public void testCanonical1() throws JsonParseException
+	{
+		JsonParser parser = new JsonParser();
+		JsonElement e1 = parser.parse("{\"b\" : [{\"y\":1, \"x\":null}], \"a\" : \"s\", \"c\" : {}}");
+		JsonMap e2 = new JsonMap();
+		e2.put("c", new JsonMap());
+		e2.put("a", "s");
+		JsonMap inner = new JsonMap();
+		inner.put("x", JsonNull.instance);
+		inner.put("y", 1);
+		JsonList list = new JsonList();
+		list.add(inner);
+		e2.put("b", list);
+		String expected = "{\"a\":\"s\",\"b\":[{\"x\":null,\"y\":1}],\"c\":{}}";
+		assertEquals(expected, e1.toCanonicalString());
+		assertEquals(expected, e2.toCanonicalString());
+		assertEquals(expected, parser.parseLazy(e1.toString()).toCanonicalString());
+		assertEquals("3", new JsonNumber(3).toCanonicalString());
+	}
+
+	@Test
+	public void testCanonical2() throws JsonParseException
+	{
+		// Keys are escaped like string values
+		JsonMap map = new JsonMap();
+		map.put("a\"b", new JsonNumber(1));
+		map.put("c\\d", new JsonNumber(2));
+		map.put("e\tf\u0001", new JsonNumber(3));
+		for (String s : new String[] {map.toString(), map.toString("", false), map.toCanonicalString()})
+		{
+			assertEquals(map, j_parser.parse(s));
+		}
+		assertEquals("{\"a\\\"b\":1,\"c\\\\d\":2,\"e\\tf\\u0001\":3}", map.toCanonicalString());
+	}
+
+	@Test
+	public void testFreeze1() throws JsonParseException
+	{
+		JsonMap map = (JsonMap) new JsonParser().parse("{\"a\" : [1, {\"b\" : 2}], \"c\" : \"d\"}");
+		assertFalse(map.isFrozen());
+		assertSame(map, map.freeze());
+		assertTrue(map.isFrozen());
+		JsonList list = (JsonList) map.get("a");
+		JsonMap inner = (JsonMap) list.get(1);
+		assertTrue(list.isFrozen());
+		assertTrue(inner.isFrozen());
+		assertFrozen(map, "{\"a\":[1,{\"b\":2}],\"c\":\"d\"}");
+		// A clone is a mutable copy
+		JsonMap copy = map.clone();
+		assertFalse(copy.isFrozen());
+		((JsonMap) ((JsonList) copy.get("a")).get(1)).put("b", 3);
+		assertEquals(2, inner.getInt("b"));
+		// A lazy map is materialized before it is frozen
+		JsonElement lazy = new JsonParser().parseLazy(map.toString()).freeze();
+		assertFrozen(lazy, map.toString());
+	}
+
+	@Test
+	public void testWith1() throws JsonParseException
+	{
+		JsonMap map = (JsonMap) new JsonParser().parse("{\"a\" : [1, {\"b\" : 2}], \"c\" : {\"d\" : null}}");
+		JsonMap m2 = map.with("e", new JsonString("f")).without("c");
+		assertTrue(map.isFrozen());
+		assertTrue(m2.isFrozen());
+		assertSame(map.get("a"), m2.get("a"));
+		assertEquals("{\"a\":[1,{\"b\":2}],\"e\":\"f\"}", m2.toCanonicalString());
+		JsonMap m3 = (JsonMap) JsonPath.with(map, "a[1].b", new JsonNumber(3));
+		assertEquals("{\"a\":[1,{\"b\":3}],\"c\":{\"d\":null}}", m3.toCanonicalString());
+		assertEquals("{\"a\":[1,{\"b\":2}],\"c\":{\"d\":null}}", map.toCanonicalString());
+		// Only the containers along the path are copied
+		assertSame(map.get("c"), m3.get("c"));
+		assertNotSame(map.get("a"), m3.get("a"));
+		assertTrue(m3.isFrozen());
+		assertNull(JsonPath.with(map, "x.y", JsonNull.instance));
+		JsonList list = ((JsonList) map.get("a")).withAdded(new JsonNumber(4)).without(0);
+		assertEquals("[{\"b\":2},4]", list.toString());
+	}
+
+	@Test
+	public void testClone1() throws JsonParseException
+	{
+		String s = "{\"a\":[1,{\"b\":2}],\"c\":{\"d\":\"e\"},\"f\":[3]}";
+		JsonMap template = (JsonMap) new JsonParser().parse(s).freeze();
+		JsonMap copy = template.clone();
+		assertFalse(copy.isFrozen());
+		// The copy shares the entries of the template until it is accessed
+		assertSame(template.m_map, copy.m_map);
+		assertEquals(s, copy.toString());
+		assertSame(template.m_map, copy.m_map);
+		JsonMap copy2 = copy.clone();
+		assertSame(template.m_map, copy2.m_map);
+		// Modifying a value deep in the copy only copies the containers
+		// along the way
+		JsonList list = (JsonList) copy.get("a");
+		assertNotSame(template.m_map, copy.m_map);
+		((JsonMap) list.get(1)).put("b", 3);
+		assertEquals("{\"a\":[1,{\"b\":3}],\"c\":{\"d\":\"e\"},\"f\":[3]}", copy.toString());
+		assertEquals(s, template.toString());
+		assertEquals(s, copy2.toString());
+		assertSame(((JsonList) template.get("f")).m_list, ((JsonList) copy.m_map.get("f")).m_list);
+		assertSame(((JsonMap) template.get("c")).m_map, ((JsonMap) copy.m_map.get("c")).m_map);
+		assertSame(((JsonList) template.get("a")).get(0), list.get(0));
+		((JsonList) copy.get("f")).add(new JsonNumber(4));
+		assertEquals("[3]", template.get("f").toString());
+		assertEquals("[3,4]", copy.get("f").toString());
+		// A copy of a mutable map does not share its containers
+		JsonMap copy3 = copy.clone();
+		((JsonMap) copy3.get("c")).put("d", "x");
+		assertEquals("{\"d\":\"e\"}", copy.get("c").toString());
+		// Freezing a copy that shares its entries keeps sharing them
+		JsonMap copy4 = template.clone().freeze();
+		assertSame(template.m_map, copy4.m_map);
+	}
+
+	@Test
+	public void testEquals1() throws JsonParseException
+	{
+		JsonParser parser = new JsonParser();
+		String s1 = "{\"a\":[1,{\"b\":\"c\"}],\"d\":null,\"e\":{}}";
+		String s2 = "{\"e\":{},\"d\":null,\"a\":[1,{\"b\":\"c\"}]}";
+		JsonMap m1 = (JsonMap) parser.parse(s1);
+		JsonMap m2 = (JsonMap) parser.parse(s2);
+		assertEquals(m1, m2);
+		assertEquals(m1.hashCode(), m2.hashCode());
+		assertEquals(m1, parser.parseLazy(s2));
+		assertEquals(parser.parseLazy(s2), m1);
+		assertEquals(m1.m_map, m1);
+		assertEquals(m1, new HashMap<String,JsonElement>(m1));
+		assertEquals(0, m1.compareTo(m2));
+		// Mutable maps do not keep their hash code
+		((JsonList) m2.get("a")).add(new JsonNumber(2));
+		assertFalse(m1.equals(m2));
+		assertFalse(m1.hashCode() == m2.hashCode());
+		// Frozen maps do, and compare it first
+		m1.freeze();
+		m2.freeze();
+		assertEquals(0, m1.m_hashCode);
+		assertFalse(m1.equals(m2));
+		assertEquals(m1.hashCode(), m1.m_hashCode);
+		assertEquals(m1, m1.clone());
+		assertEquals(m1.hashCode(), m1.clone().m_hashCode);
+		Set<JsonElement> set = new HashSet<JsonElement>();
+		set.add(m1);
+		set.add(m2);
+		set.add(parser.parse(s2));
+		set.add(parser.parse(s1).freeze());
+		set.add(m1.clone());
+		assertEquals(2, set.size());
+		assertTrue(set.contains(parser.parseLazy(s1)));
+		JsonList l1 = (JsonList) parser.parse("[1,\"x\",[true]]");
+		JsonList l2 = (JsonList) parser.parse("[1,\"x\",[true]]").freeze();
+		assertEquals(l1, l2);
+		assertEquals(l1.hashCode(), l2.hashCode());
+		assertEquals(l1, Arrays.asList(l1.toArray()));
+		assertFalse(l1.equals(parser.parse("[1,\"x\",[false]]")));
+	}
+
+	@Test
+	public void testEquals2() throws JsonParseException
+	{
+		// Numbers of different types with the same value are equal, and
+		// have the same hash code
+		JsonParser parser = new JsonParser();
+		assertEquals(new JsonNumber(1), new JsonNumber(1.0));
+		assertEquals(new JsonNumber(1).hashCode(), new JsonNumber(1.0).hashCode());
+		assertEquals(new JsonNumber(3L).hashCode(), new JsonNumber(3f).hashCode());
+		assertEquals(new JsonNumber(0).hashCode(), new JsonNumber(-0.0).hashCode());
+		JsonMap m1 = (JsonMap) parser.parse("{\"a\":1,\"b\":[0,2]}");
+		JsonMap m2 = (JsonMap) parser.parse("{\"a\":1.0,\"b\":[-0.0,2e0]}");
+		assertEquals(m1, m2);
+		assertEquals(m1.hashCode(), m2.hashCode());
+		m1.freeze();
+		m2.freeze();
+		assertEquals(m1, m2);
+		assertEquals(m2, m1);
+		assertEquals(m1.get("b"), m2.get("b"));
+		assertFalse(m1.equals(parser.parse("{\"a\":1.5,\"b\":[0,2]}").freeze()));
+	}
+
+	/**
+	 * Checks that an element and its descendants cannot be modified
+	 * @param e The element
+	 * @param expected The compact form of the element
+	 */
+	protected static void assertFrozen(JsonElement e, String expected)
+	{
+		assertEquals(expected, e.toString());
+		assertTrue(e.isFrozen());
+		if (e instanceof JsonMap)
+		{
+			JsonMap map = (JsonMap) e;
+			try
+			{
+				map.put("x", 0);
+				fail();
+			}
+			catch (UnsupportedOperationException ex)
+			{
+				// Expected
+			}
+			try
+			{
+				map.entrySet().iterator().next().setValue(JsonNull.instance);
+				fail();
+			}
+			catch (UnsupportedOperationException ex)
+			{
+				// Expected
+			}
+			for (JsonElement child : map.values())
+			{
+				assertFrozen(child, child.toString());
+			}
+		}
+		if (e instanceof JsonList)
+		{
+			JsonList list = (JsonList) e;
+			try
+			{
+				list.iterator().remove();
+				fail();
+			}
+			catch (UnsupportedOperationException ex)
+			{
+				// Expected
+			}
+			try
+			{
+				list.add(0, JsonNull.instance);
+				fail();
+			}
+			catch (UnsupportedOperationException ex)
+			{
+				// Expected
+			}
+			for (JsonElement child : list)
+			{
+				assertFrozen(child, child.toString());
+			}
+		}
+		assertEquals(expected, e.toString());
+	}
+
+	@Test
+	public void testInternKeys1() throws JsonParseException
+	{
+		String s = "{\"name\" : \"name\", \"list\" : [{\"name\" : 1}, \"name\"]}";
+		JsonParser parser = new JsonParser();
+		parser.setInternKeys(true);
+		JsonMap m1 = (JsonMap) parser.parse(s);
+		JsonMap m2 = (JsonMap) parser.parse(s);
+		assertSame(getKey(m1, "name"), getKey(m2, "name"));
+		assertSame(getKey(m1, "list"), getKey(m2, "list"));
+		JsonMap inner = (JsonMap) ((JsonList) m2.get("list")).get(0);
+		assertSame(getKey(m1, "name"), getKey(inner, "name"));
+		// Values are not interned
+		assertNotSame(m1.getString("name"), m2.getString("name"));
+		assertEquals(m1.toString(), new JsonParser().parse(s).toString());
+		// The table is bounded, and collisions simply replace entries
+		StringBuilder big = new StringBuilder("{");
+		for (int i = 0; i < 5000; i++)
+		{
+			big.append(i == 0 ? "" : ",").append("\"k").append(i).append("\":").append(i);
+		}
+		big.append("}");
+		JsonMap m3 = (JsonMap) parser.parse(big.toString());
+		assertEquals(5000, m3.size());
+		assertEquals(4321, m3.getInt("k4321"));
+	}
+
+	@Test
+	public void testMaxDepth1() throws JsonParseException, IOException
+	{
+		JsonParser parser = new JsonParser();
+		assertEquals(1000, parser.getMaxDepth());
+		parser.setMaxDepth(3);
+		assertEquals("[[[1]]]", parser.parse("[[[1]]]").toString());
+		assertNotNull(parser.parse("{\"a\":[{\"b\":1}],\"c\":[[2]]}"));
+		String[] too_deep = {"[[[[1]]]]", "{\"a\":[{\"b\":[]}]}"};
+		for (String s : too_deep)
+		{
+			try
+			{
+				parser.parse(s);
+				fail("Expected an exception for " + s);
+			}
+			catch (JsonParseException e)
+			{
+				assertTrue(e.getMessage().contains("Maximum nesting depth (3)"));
+			}
+			try
+			{
+				parser.parse(s.getBytes("UTF-8"));
+				fail("Expected an exception for " + s);
+			}
+			catch (JsonParseException e)
+			{
+				// Expected
+			}
+		}
+		// The parser is still usable after an error
+		assertEquals("[[2]]", parser.parse("[[2]]").toString());
+		JsonReader r = new JsonReader("[[[[1]]]]");
+		r.setMaxDepth(3);
+		try
+		{
+			while (r.next() != JsonReader.END_DOCUMENT)
+			{
+				// Read until the error
+			}
+			fail("Expected an exception");
+		}
+		catch (JsonParseException e)
+		{
+			// Expected
+		}
+		// The default limit fails fast on pathological input
+		StringBuilder deep = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+		{
+			deep.append('[');
+		}
+		try
+		{
+			new JsonParser().parse(deep.toString());
+			fail("Expected an exception");
+		}
+		catch (JsonParseException e)
+		{
+			assertTrue(e.getMessage().contains("Maximum nesting depth"));
+		}
+	}
+
+	@Test
+	public void testMaxDepth2() throws JsonParseException
+	{
+		// Lazy documents check the depth of each level as it is parsed
+		JsonParser parser = new JsonParser();
+		parser.setMaxDepth(3);
+		assertEquals("[[[1]]]", parser.parseLazy("[[[1]]]").toString());
+		JsonList list = (JsonList) parser.parseLazy("[[[[1]]],2]");
+		JsonList l2 = (JsonList) list.get(0);
+		JsonList l3 = (JsonList) l2.get(0);
+		assertEquals(2, ((JsonNumber) list.get(1)).longValue());
+		try
+		{
+			l3.size();
+			fail("Expected an exception");
+		}
+		catch (IllegalStateException e)
+		{
+			assertTrue(e.getMessage().contains("Maximum nesting depth (3)"));
+		}
+		// A copy of a lazy container keeps its depth
+		try
+		{
+			l3.clone().size();
+			fail("Expected an exception");
+		}
+		catch (IllegalStateException e)
+		{
+			// Expected
+		}
+		parser.setMaxDepth(1);
+		try
+		{
+			parser.parseLazy("{\"a\":[]}");
+			fail("Expected an exception");
+		}
+		catch (JsonParseException e)
+		{
+			// Expected
+		}
+		// Walking a pathological document stops at the default limit
+		StringBuilder deep = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+		{
+			deep.append('[');
+		}
+		for (int i = 0; i < 100000; i++)
+		{
+			deep.append(']');
+		}
+		JsonElement e = new JsonParser().parseLazy(deep.toString());
+		try
+		{
+			e.toString();
+			fail("Expected an exception");
+		}
+		catch (IllegalStateException ex)
+		{
+			assertTrue(ex.getMessage().contains("Maximum nesting depth (1000)"));
+		}
+	}
+
+	private static String getKey(JsonMap m, String key)
+	{
+		for (String k : m.keySet())
+		{
+			if (k.equals(key))
+			{
+				return k;
+			}
+		}
+		return null;
+	}
+
 	private static String readPackageFile(Class<?> c, String path) throws IOException
 	{
 		InputStream in = c.getResourceAsStream(path);
@@ -0,0 +1,100 @@
+/*
+    json-lif, manipulate JSON elements in Java
+    Copyright (C) 2015-2020 Sylvain Hallé
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published
+    by the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ca.uqac.lif.json;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import ca.uqac.lif.json.JsonParser.JsonParseException;
+import ca.uqac.lif.json.ParallelJsonLinesReader.LineHandler;
+
+public class ParallelJsonLinesReaderTest
+{
+	@Test
+	public void testParallel1() throws IOException, InterruptedException
+	{
+		StringBuilder doc = new StringBuilder();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 500; i++)
+		{
+			String line = "{\"id\":[" + i + ",\"" + i % 7 + "\"]}";
+			doc.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+			expected.add(line);
+			if (i == 250)
+			{
+				doc.append("{bad\n\n");
+			}
+		}
+		File f = File.createTempFile("lines", ".json");
+		f.deleteOnExit();
+		FileOutputStream fos = new FileOutputStream(f);
+		fos.write(doc.toString().getBytes("UTF-8"));
+		fos.close();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			ParallelJsonLinesReader r = new ParallelJsonLinesReader(f, executor);
+			r.setChunkSize(100);
+			CollectingHandler h = new CollectingHandler();
+			r.read(h);
+			assertEquals(expected, h.m_lines);
+			assertEquals(1, h.m_errors);
+			r.setOrdered(false);
+			r.setMaxPendingChunks(3);
+			h = new CollectingHandler();
+			r.read(h);
+			assertEquals(1, h.m_errors);
+			Collections.sort(h.m_lines);
+			Collections.sort(expected);
+			assertEquals(expected, h.m_lines);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	protected static class CollectingHandler implements LineHandler
+	{
+		protected final List<String> m_lines = new ArrayList<String>();
+
+		protected int m_errors;
+
+		@Override
+		public void element(JsonElement e)
+		{
+			m_lines.add(e.toString());
+		}
+
+		@Override
+		public void error(JsonParseException e)
+		{
+			m_errors++;
+		}
+	}
+}
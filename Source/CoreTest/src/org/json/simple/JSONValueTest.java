@@ -256,4 +256,14 @@ public class JSONValueTest extends TestCase {
 		JSONValue.writeJSONString(nestedStringArray, writer);
 		assertEquals(expectedNestedStringString, writer.toString());
 	}
+	public void testEscape() throws IOException {
+		String s = "plain text";
+		assertSame(s, JSONValue.escape(s));
+		assertEquals("a\\\"b\\\\c\\/d\\n\\u0001\\u2028", JSONValue.escape("a\"b\\c/d\n\u0001\u2028"));
+		assertEquals("x\\t", JSONValue.escape("x\t"));
+		StringWriter writer = new StringWriter();
+		JSONValue.writeJSONString("\u007F\u009Fz", writer);
+		assertEquals("\"\\u007F\\u009Fz\"", writer.toString());
+	}
+	
 }
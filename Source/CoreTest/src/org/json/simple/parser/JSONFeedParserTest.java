@@ -0,0 +1,204 @@
+package org.json.simple.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class JSONFeedParserTest extends TestCase {
+
+	private static final String DOCUMENT = "{\"name\":\"café 日本 😀\", \"esc\":\"a\\\"b\\\\n\\u00e9\","
+			+ "\"n\":[0,-12,3.25e-2,12345678901234567890.5,true,false,null],"
+			+ "\"nested\":{\"deep\":[[{}],[]]},\"big\":12345}";
+
+	public void testChunks() throws Exception{
+		String expected = reference(DOCUMENT);
+		byte[] bytes = DOCUMENT.getBytes("UTF-8");
+		for(int size=1;size<=10;size++){
+			EventLog log = new EventLog(-1);
+			JSONFeedParser parser = new JSONFeedParser(log);
+			for(int i=0;i<bytes.length;i+=size){
+				ByteBuffer chunk = ByteBuffer.wrap(bytes, i, Math.min(size, bytes.length - i));
+				assertTrue(parser.feed(chunk));
+				assertFalse(chunk.hasRemaining());
+			}
+			assertFalse(parser.isFinished());
+			assertTrue(parser.endOfInput());
+			assertTrue(parser.isFinished());
+			assertEquals("Chunks of " + size, expected, log.toString());
+		}
+		// Random cuts, with the buffers overwritten after each call
+		Random r = new Random(0xfeed);
+		for(int k=0;k<50;k++){
+			EventLog log = new EventLog(-1);
+			JSONFeedParser parser = new JSONFeedParser(log);
+			ByteBuffer reused = ByteBuffer.allocateDirect(64);
+			int i = 0;
+			while(i < bytes.length){
+				int n = Math.min(1 + r.nextInt(40), bytes.length - i);
+				reused.clear();
+				reused.put(bytes, i, n).flip();
+				parser.feed(reused);
+				reused.clear();
+				reused.put(new byte[64]);
+				i += n;
+			}
+			parser.endOfInput();
+			assertEquals(expected, log.toString());
+		}
+	}
+
+	public void testIncremental() throws Exception{
+		EventLog log = new EventLog(-1);
+		JSONFeedParser parser = new JSONFeedParser(log);
+		parser.feed(utf8("{\"a\":[1,"));
+		assertEquals("startJSON { a [ 1 ", log.toString());
+		parser.feed(utf8("2"));
+		// The number may continue in the next chunk
+		assertEquals("startJSON { a [ 1 ", log.toString());
+		parser.feed(utf8("3]}  "));
+		assertEquals("startJSON { a [ 1 23 ] endEntry } ", log.toString());
+		assertFalse(parser.isFinished());
+		parser.endOfInput();
+		assertEquals("startJSON { a [ 1 23 ] endEntry } endJSON", log.toString());
+
+		log = new EventLog(-1);
+		parser = new JSONFeedParser(log);
+		parser.feed(utf8("1"));
+		parser.feed(utf8("2"));
+		assertEquals("startJSON ", log.toString());
+		parser.endOfInput();
+		assertEquals("startJSON 12 endJSON", log.toString());
+	}
+
+	public void testStop() throws Exception{
+		String expected = reference(DOCUMENT);
+		byte[] bytes = DOCUMENT.getBytes("UTF-8");
+		EventLog log = new EventLog(3);
+		JSONFeedParser parser = new JSONFeedParser(log);
+		int stops = 0;
+		boolean done = parser.feed(ByteBuffer.wrap(bytes, 0, 40));
+		while(!done){
+			stops++;
+			done = parser.feed(ByteBuffer.allocate(0));
+		}
+		parser.feed(ByteBuffer.wrap(bytes, 40, bytes.length - 40));
+		while(!parser.endOfInput()){
+			stops++;
+		}
+		assertTrue(stops > 0);
+		assertEquals(expected, log.toString());
+	}
+
+	public void testErrors() throws Exception{
+		JSONFeedParser parser = new JSONFeedParser(new EventLog(-1));
+		parser.feed(utf8("[1,"));
+		try{
+			parser.feed(utf8("}"));
+			fail("Expected an exception");
+		}
+		catch(ParseException e){
+			assertEquals(ParseException.ERROR_UNEXPECTED_TOKEN, e.getErrorType());
+			assertEquals(3, e.getPosition());
+		}
+
+		parser = new JSONFeedParser(new EventLog(-1));
+		parser.feed(utf8("{\"a\":\"unfinished"));
+		try{
+			parser.endOfInput();
+			fail("Expected an exception");
+		}
+		catch(ParseException e){
+			// Expected
+		}
+		try{
+			parser.feed(utf8("\"}"));
+			fail("Expected an exception");
+		}
+		catch(IllegalStateException e){
+			// Expected
+		}
+
+		parser = new JSONFeedParser(new EventLog(-1));
+		parser.setMaxDepth(2);
+		parser.feed(utf8("[["));
+		try{
+			parser.feed(utf8("["));
+			fail("Expected an exception");
+		}
+		catch(ParseException e){
+			assertEquals(ParseException.ERROR_MAX_DEPTH, e.getErrorType());
+		}
+	}
+
+	private static ByteBuffer utf8(String s) throws IOException{
+		return ByteBuffer.wrap(s.getBytes("UTF-8"));
+	}
+
+	private static String reference(String s) throws ParseException{
+		EventLog log = new EventLog(-1);
+		new JSONParser().parse(s, log);
+		return log.toString();
+	}
+
+	/**
+	 * Records the events it receives, and optionally stops the parsing
+	 * every given number of events
+	 */
+	private static class EventLog implements ContentHandler{
+		private final StringBuilder log = new StringBuilder();
+		private final int stopEvery;
+		private int events;
+
+		EventLog(int stopEvery){
+			this.stopEvery = stopEvery;
+		}
+
+		private boolean add(String event){
+			log.append(event).append(' ');
+			events++;
+			return stopEvery < 0 || events % stopEvery != 0;
+		}
+
+		public void startJSON(){
+			log.append("startJSON ");
+		}
+
+		public void endJSON(){
+			log.append("endJSON");
+		}
+
+		public boolean startObject(){
+			return add("{");
+		}
+
+		public boolean endObject(){
+			return add("}");
+		}
+
+		public boolean startObjectEntry(String key){
+			return add(key);
+		}
+
+		public boolean endObjectEntry(){
+			return add("endEntry");
+		}
+
+		public boolean startArray(){
+			return add("[");
+		}
+
+		public boolean endArray(){
+			return add("]");
+		}
+
+		public boolean primitive(Object value){
+			return add(String.valueOf(value));
+		}
+
+		public String toString(){
+			return log.toString();
+		}
+	}
+}
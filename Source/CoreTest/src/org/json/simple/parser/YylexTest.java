@@ -2,6 +2,7 @@ package org.json.simple.parser;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
@@ -77,4 +78,184 @@ public class YylexTest extends TestCase {
 		assertTrue(err!=null);
 	}
 
+	public void testYynext() throws Exception{
+		String s="[\"ab\\n\", 12, -3.5e2, true, false, null, 0.1, -0.0, 1e300, 9223372036854775807]";
+		Yylex lexer=new Yylex(new StringReader(s));
+		assertEquals(Yytoken.TYPE_LEFT_SQUARE,lexer.yynext());
+		assertEquals(0,lexer.yystart());
+		assertEquals(1,lexer.yyend());
+		assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(Yytoken.VALUE_STRING,lexer.yyvaluekind());
+		assertEquals("ab\n",lexer.yystring());
+		assertEquals(1,lexer.yystart());
+		assertEquals(7,lexer.yyend());
+		assertEquals(Yytoken.TYPE_COMMA,lexer.yynext());
+		assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(Yytoken.VALUE_LONG,lexer.yyvaluekind());
+		assertEquals(12L,lexer.yylong());
+		assertEquals(Long.valueOf(12),lexer.yyvalue());
+		assertEquals(9,lexer.yystart());
+		assertEquals(11,lexer.yyend());
+		lexer.yynext();
+		assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(Yytoken.VALUE_DOUBLE,lexer.yyvaluekind());
+		assertEquals(-350d,lexer.yydouble(),0);
+		lexer.yynext();
+		assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(Yytoken.VALUE_BOOLEAN,lexer.yyvaluekind());
+		assertTrue(lexer.yyboolean());
+		lexer.yynext();
+		lexer.yynext();
+		assertFalse(lexer.yyboolean());
+		lexer.yynext();
+		assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(Yytoken.VALUE_NULL,lexer.yyvaluekind());
+		assertNull(lexer.yyvalue());
+		lexer.yynext();
+		lexer.yynext();
+		assertEquals(0.1d,lexer.yydouble(),0);
+		lexer.yynext();
+		lexer.yynext();
+		assertEquals(Double.doubleToLongBits(-0d),Double.doubleToLongBits(lexer.yydouble()));
+		lexer.yynext();
+		lexer.yynext();
+		assertEquals(1e300d,lexer.yydouble(),0);
+		lexer.yynext();
+		lexer.yynext();
+		assertEquals(Yytoken.VALUE_LONG,lexer.yyvaluekind());
+		assertEquals(Long.MAX_VALUE,lexer.yylong());
+		assertEquals(Yytoken.TYPE_RIGHT_SQUARE,lexer.yynext());
+		assertEquals(Yytoken.TYPE_EOF,lexer.yynext());
+		assertEquals(Yytoken.TYPE_EOF,lexer.yytype());
+		assertNull(lexer.yylex());
+		
+		lexer=new Yylex(new StringReader("123456789012345678901"));
+		try{
+			lexer.yynext();
+			fail("Integer out of range");
+		}
+		catch(NumberFormatException e){
+			// Expected
+		}
+	}
+
+	public void testStrings() throws Exception{
+		StringBuilder big=new StringBuilder();
+		for(int i=0;i<20000;i++){
+			big.append((char)('a'+i%26));
+		}
+		String s="[\"\", \"abc\", \"a\\u00e9\\\"b\\\\\", \""+big+"\", \""+big+"\\n"+big+"\"]";
+		String[] expected={"", "abc", "a\u00e9\"b\\", big.toString(), big+"\n"+big};
+		// Read one character at a time, so that strings cross buffer refills
+		Yylex[] lexers={new Yylex(new StringReader(s)), new Yylex(new TrickleReader(s))};
+		for(Yylex lexer : lexers){
+			assertEquals(Yytoken.TYPE_LEFT_SQUARE,lexer.yynext());
+			for(int i=0;i<expected.length;i++){
+				if(i>0){
+					assertEquals(Yytoken.TYPE_COMMA,lexer.yynext());
+				}
+				assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+				assertEquals(expected[i],lexer.yystring());
+			}
+			assertEquals(Yytoken.TYPE_RIGHT_SQUARE,lexer.yynext());
+		}
+	}
+
+	/**
+	 * A reader that returns at most one character per call
+	 */
+	private static class TrickleReader extends StringReader{
+		public TrickleReader(String s){
+			super(s);
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException{
+			return super.read(cbuf, off, Math.min(len, 1));
+		}
+	}
+
+	public void testNumbers() throws Exception{
+		String[] doubles={"0.0", "-0.0", "1.5", "0.1", "1e23", "8.41e21", "9007199254740993.0",
+				"2.2250738585072011e-308", "2.2250738585072014e-308", "4.9e-324", "2.4703282292062327e-324",
+				"2.4703282292062328e-324", "1.7976931348623157e308", "1.7976931348623159e308", "1e-400",
+				"123456789012345678901234567890.5", "1e999", "0.00000000000000000000000000000000001e35",
+				"7.0420557077594588669468784357561207962098443483187940792729600000e59", "-6.02214076e23"};
+		for(String d : doubles){
+			assertDouble(d);
+		}
+		// Seeded, so that a failure can be reproduced
+		Random r=new Random(0x5eed);
+		StringBuilder sb=new StringBuilder();
+		for(int i=0;i<100000;i++){
+			sb.setLength(0);
+			if(i%2==0){
+				// Shortest representation of an arbitrary double
+				double d=Double.longBitsToDouble(r.nextLong());
+				if(Double.isNaN(d) || Double.isInfinite(d)){
+					continue;
+				}
+				sb.append(d);
+			}
+			else{
+				// Arbitrary digits, point and exponent
+				if(r.nextBoolean()){
+					sb.append('-');
+				}
+				int digits=1+r.nextInt(22);
+				int point=r.nextInt(digits+1);
+				for(int k=0;k<digits;k++){
+					if(k==point && k>0){
+						sb.append('.');
+					}
+					sb.append((char)((k==0 ? '1' : '0')+r.nextInt(k==0 ? 9 : 10)));
+				}
+				if(point==0 || point==digits){
+					sb.append(".5");
+				}
+				if(r.nextBoolean()){
+					sb.append('e').append(r.nextInt(700)-350);
+				}
+			}
+			assertDouble(sb.toString());
+		}
+		
+		String[] longs={"0", "-0", "9223372036854775807", "-9223372036854775808", "1000000000000000000", "-999999999999999999"};
+		for(String l : longs){
+			Yylex lexer=new Yylex(new StringReader(l));
+			assertEquals(Yytoken.TYPE_VALUE,lexer.yynext());
+			assertEquals(Yytoken.VALUE_LONG,lexer.yyvaluekind());
+			assertEquals(Long.parseLong(l),lexer.yylong());
+		}
+		String[] overflows={"9223372036854775808", "-9223372036854775809", "9999999999999999999", "-18446744073709551616"};
+		for(String l : overflows){
+			try{
+				new Yylex(new StringReader(l)).yynext();
+				fail("Integer out of range: "+l);
+			}
+			catch(NumberFormatException e){
+				// Expected
+			}
+		}
+	}
+
+	public void testLongPosition() throws Exception{
+		// Positions beyond 2^31 characters, in large files, are kept whole
+		long position=(1L<<31)+11;
+		ParseException e=new ParseException(position, ParseException.ERROR_UNEXPECTED_CHAR, new Character('x'));
+		assertEquals(position,e.getLongPosition());
+		assertEquals(Integer.MAX_VALUE,e.getPosition());
+		assertTrue(e.getMessage(),e.getMessage().contains("position 2147483659."));
+		e=new ParseException(5, ParseException.ERROR_UNEXPECTED_CHAR, new Character('x'));
+		assertEquals(5,e.getPosition());
+		assertEquals(5L,e.getLongPosition());
+	}
+
+	private static void assertDouble(String s) throws Exception{
+		Yylex lexer=new Yylex(new StringReader(s));
+		assertEquals(s,Yytoken.TYPE_VALUE,lexer.yynext());
+		assertEquals(s,Yytoken.VALUE_DOUBLE,lexer.yyvaluekind());
+		assertEquals(s,Double.doubleToLongBits(Double.parseDouble(s)),Double.doubleToLongBits(lexer.yydouble()));
+	}
+
 }